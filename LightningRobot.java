@@ -9,6 +9,8 @@ import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.thunder.shuffleboard.TelemetryScheduler;
+import frc.thunder.shuffleboard.TunableStore;
 import frc.thunder.testing.SystemTest;
 
 import java.io.File;
@@ -108,6 +110,9 @@ public class LightningRobot extends TimedRobot {
         // Start logging driverstation
         DriverStation.startDataLog(DataLogManager.getLog());
 
+        // Reload tunables saved from previous dashboard tuning
+        TunableStore.load();
+
         // No Live Window for now
         LiveWindow.disableAllTelemetry();
 
@@ -145,8 +150,8 @@ public class LightningRobot extends TimedRobot {
      * LiveWindow and Shuffleboard integrated updating.
      *
      * If you override this method, be sure to call super.robotPeriod() as
-     * it drives our lower priority loops, datalogging, fault monitoring,
-     * etc.
+     * it drives our lower priority loops, periodic telemetry, datalogging,
+     * fault monitoring, etc.
      */
     @Override
     public void robotPeriodic() {
@@ -166,6 +171,9 @@ public class LightningRobot extends TimedRobot {
             loopTime = Timer.getFPGATimestamp() - time;
         }
 
+        // Publish any periodic telemetry that came due this loop
+        TelemetryScheduler.run(time);
+
         CommandScheduler.getInstance().run();
     }
 
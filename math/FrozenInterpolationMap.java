@@ -0,0 +1,129 @@
+package frc.thunder.math;
+
+import java.util.Map;
+
+/**
+ * Read only {@link InterpolationMap} backed by sorted primitive arrays. A lookup does no boxing and
+ * no tree walks: it first checks the segment the last lookup landed in (and its neighbours), which
+ * is where a slowly changing input (eg distance to the target) almost always is, and only falls
+ * back to a binary search when the input jumps.
+ *
+ * Lookups give exactly the same results as {@link InterpolationMap#get(double)}.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * FrozenInterpolationMap shooterSpeed = new InterpolationMap(1.0, 3000, 2.0, 3500, 3.0, 4200).freeze();
+ * shooterSpeed.get(distance);
+ * </pre>
+ */
+public class FrozenInterpolationMap {
+    private final double[] keys;
+    private final double[] values;
+
+    // segment of the last lookup, only a guess that is checked before use, so a stale value from
+    // another thread is harmless
+    private int hint = 0;
+
+    /**
+     * @param doubles key value pairs, same as {@link InterpolationMap#InterpolationMap(double...)}
+     */
+    public FrozenInterpolationMap(double... doubles) {
+        this(new InterpolationMap(doubles));
+    }
+
+    /**
+     * @param doubles key value pairs, same as {@link InterpolationMap#InterpolationMap(Double[])}
+     */
+    public FrozenInterpolationMap(Double[] doubles) {
+        this(new InterpolationMap(doubles));
+    }
+
+    /**
+     * @param map the map to copy, later changes to it are not seen
+     */
+    public FrozenInterpolationMap(InterpolationMap map) {
+        keys = new double[map.size()];
+        values = new double[map.size()];
+
+        // the map is already sorted and has no duplicate keys
+        int i = 0;
+        for (Map.Entry<Double, Double> entry : map.entrySet()) {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the value at the key, linearly interpolated between the nearest keys, and clamped to
+     *         the first or last value outside the keys
+     */
+    public double get(double key) {
+        int n = keys.length;
+        if (n == 0) {
+            System.err.println("ERROR InterpolationMap, empty map used");
+            return 0;
+        }
+        // NaN compares greater than every key in the tree version, so it gets the last value
+        if (Double.isNaN(key)) {
+            return values[n - 1];
+        }
+        if (key <= keys[0]) {
+            return values[0];
+        }
+        if (key >= keys[n - 1]) {
+            return values[n - 1];
+        }
+
+        // keys[segment] <= key < keys[segment + 1]
+        int segment = hint;
+        if (!inSegment(segment, key)) {
+            if (inSegment(segment + 1, key)) {
+                segment++;
+            } else if (inSegment(segment - 1, key)) {
+                segment--;
+            } else {
+                segment = search(key);
+            }
+            hint = segment;
+        }
+
+        double floorKey = keys[segment];
+        if (key == floorKey) {
+            return values[segment];
+        }
+        double percent = (key - floorKey) / (keys[segment + 1] - floorKey);
+        double floor = values[segment];
+        return (values[segment + 1] - floor) * percent + floor;
+    }
+
+    private boolean inSegment(int segment, double key) {
+        return segment >= 0 && segment < keys.length - 1 && keys[segment] <= key && key < keys[segment + 1];
+    }
+
+    /**
+     * @return the last index whose key is at most the given key, which must be inside the keys
+     */
+    private int search(double key) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= key) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return keys.length;
+    }
+}
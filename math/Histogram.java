@@ -0,0 +1,136 @@
+package frc.thunder.math;
+
+/**
+ * Fixed width bin histogram over a fixed range. Values outside the range are clamped into the
+ * first or last bin, so nothing is ever lost, and recording a value never allocates.
+ *
+ * Calling {@link #decay()} at a fixed rate turns it into a recent history: old values fade out with
+ * a half life of the decay period, so the percentiles follow the current behavior instead of
+ * everything ever recorded.
+ */
+public class Histogram {
+    private final double min;
+    private final double binWidth;
+    private final long[] counts;
+
+    private long total = 0;
+    private double sum = 0;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param min the lower edge of the first bin
+     * @param max the upper edge of the last bin
+     * @param bins the number of bins
+     */
+    public Histogram(double min, double max, int bins) {
+        this.min = min;
+        this.binWidth = (max - min) / bins;
+        this.counts = new long[bins];
+    }
+
+    /**
+     * Record a value
+     *
+     * @param value the value to record
+     */
+    public void add(double value) {
+        int bin = (int) ((value - min) / binWidth);
+        counts[Math.max(0, Math.min(counts.length - 1, bin))]++;
+
+        total++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Forget every recorded value
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        total = 0;
+        sum = 0;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Halve every count (rounding down, so lone old values drop out), keeping the recent values
+     * weighted over older ones. The mean is scaled with the counts and the max becomes the upper
+     * edge of the highest bin left if its bin emptied, so both are approximate after a decay.
+     */
+    public void decay() {
+        if (total == 0) {
+            return;
+        }
+
+        long kept = 0;
+        int highest = -1;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] >>= 1;
+            kept += counts[i];
+            if (counts[i] > 0) {
+                highest = i;
+            }
+        }
+
+        sum = sum * kept / total;
+        total = kept;
+        int maxBin = Math.max(0, Math.min(counts.length - 1, (int) ((max - min) / binWidth)));
+        if (highest < 0) {
+            max = Double.NEGATIVE_INFINITY;
+        } else if (counts[maxBin] == 0) {
+            max = min + (highest + 1) * binWidth;
+        }
+    }
+
+    /**
+     * @param percentile the percentile to find, 0 to 1
+     * @return the upper edge of the bin holding the percentile, NaN if nothing was recorded
+     */
+    public double getPercentile(double percentile) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+
+        long target = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return min + (i + 1) * binWidth;
+            }
+        }
+        return min + counts.length * binWidth;
+    }
+
+    /**
+     * @return the mean of the recorded values, NaN if nothing was recorded
+     */
+    public double getMean() {
+        return total == 0 ? Double.NaN : sum / total;
+    }
+
+    /**
+     * @return the largest recorded value, NaN if nothing was recorded
+     */
+    public double getMax() {
+        return total == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the count of each bin, owned by the histogram
+     */
+    public long[] getCounts() {
+        return counts;
+    }
+}
@@ -63,4 +63,14 @@ public class InterpolationMap extends TreeMap<Double, Double> {
         return l;
     }
 
+    /**
+     * Copy the map into a read only version with much faster lookups, for tables that are looked
+     * up every loop
+     *
+     * @return a frozen copy of the map, later changes to this map are not seen
+     */
+    public FrozenInterpolationMap freeze() {
+        return new FrozenInterpolationMap(this);
+    }
+
 }
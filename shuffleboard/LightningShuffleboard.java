@@ -37,6 +37,9 @@ import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 public class LightningShuffleboard {
     private static HashMap<String, Object> keyList = new HashMap<String, Object>();
 
+    //code defaults of the tunables read through getDouble, so a cleared tunable can go back to its default
+    private static HashMap<String, Double> tunableDefaults = new HashMap<String, Double>();
+
     //seperate hm for poses in order to retain publishers.
     private static HashMap<String, StructPublisher<Pose2d>> poseList = new HashMap<String, StructPublisher<Pose2d>>();
 
@@ -189,26 +192,61 @@ public class LightningShuffleboard {
      * @return the value of the shuffleboard entry
      * 
      * @implNote this causes some performance issues if used periodically.
+     * @implNote values changed on the dashboard are persisted by {@link TunableStore}, and
+     *           replace defaultValue after a reboot.
      */
     public static double getDouble(String tabName, String key, double defaultValue) {
         String index = tabName + "/" + key;
 
         /* logic breakdown:
-         * if the key does not exist, create it
-         * if the key exists, update it
+         * if the key does not exist, create it (with the persisted value, if there is one)
+         * if the key exists, update it, and persist it if it changed
          * this does create some overhead if used periodically
          */
         if(!keyList.containsKey(index)) {
-            keyList.put(index, defaultValue);
-            Shuffleboard.getTab(tabName).add(key, defaultValue);
-            return defaultValue;
+            Double persisted = TunableStore.get(index);
+            double value = persisted != null ? persisted : defaultValue;
+            keyList.put(index, value);
+            tunableDefaults.put(index, defaultValue);
+            Shuffleboard.getTab(tabName).add(key, value);
+            return value;
         } else {
             double value = NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tabName).getEntry(key).getDouble(defaultValue);
-            keyList.put(index, value);
+            if(!keyList.put(index, value).equals(value)) {
+                TunableStore.put(index, value);
+            }
             return value;
         }
     }
 
+    /**
+     * Puts a tunable read through getDouble back to its code default, on the dashboard and in the
+     * tracked value, so the next poll doesn't see a change and persist it again
+     * @param index the tunable's key (tab/key)
+     * @implNote called by {@link TunableStore#clear(String)}
+     */
+    static void resetTunable(String index) {
+        Double defaultValue = tunableDefaults.get(index);
+        if(defaultValue == null) {
+            return;
+        }
+
+        int split = index.indexOf('/');
+        keyList.put(index, defaultValue);
+        NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(index.substring(0, split))
+                .getEntry(index.substring(split + 1)).setDouble(defaultValue);
+    }
+
+    /**
+     * Puts every tunable read through getDouble back to its code default
+     * @implNote called by {@link TunableStore#clearAll()}
+     */
+    static void resetTunables() {
+        for(String index : tunableDefaults.keySet()) {
+            resetTunable(index);
+        }
+    }
+
     /**
      * Creates and grabs a boolean from NT through shuffleboard
      * @param tabName the tab to grab the value from
@@ -1,116 +1,266 @@
 package frc.thunder.shuffleboard;
 
+import java.util.ArrayList;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 import edu.wpi.first.math.Pair;
+import edu.wpi.first.networktables.BooleanArrayPublisher;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.networktables.Publisher;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 
 /**
  * This class is used to create a periodic shuffleboard tab. This is useful for logging data that is
  * not updated often.
- * 
- * USAGE: Create a new LightningShuffleboardPeriodic object in the constructor of your subsystem
- * (with a key, object pair for each value you want to log); then place
- * LightningShuffleboardPeriodic.loop in your periodic method.
+ *
+ * USAGE: Build a LightningShuffleboardPeriodic in the constructor of your subsystem, with a typed
+ * supplier for each value you want to log:
+ *
+ * <pre>
+ * LightningShuffleboardPeriodic.builder("Arm")
+ *         .addDouble("angle", 0.1, this::getAngle)
+ *         .addBoolean("on target", this::onTarget)
+ *         .build();
+ * </pre>
+ *
+ * Each value is bound to a cached NT publisher when it is added, and is published once per period
+ * by the shared {@link TelemetryScheduler}, which {@link frc.thunder.LightningRobot} runs every
+ * loop, so nothing needs to be called from your periodic method.
  */
-
- @SuppressWarnings("unchecked")
 public class LightningShuffleboardPeriodic {
-    private Pair<String, Object>[] values;
-    private int length = 0;
-    private double lastTime = Timer.getFPGATimestamp();
-    private String tab;
-    private double loopTime;
-    private int index = 0;
-
-    private enum Type {
-        DOUBLE, BOOLEAN, STRING, DOUBLE_ARRAY, BOOLEAN_ARRAY, STRING_ARRAY, NULL
-    }
+    private final ArrayList<Publisher> publishers;
+    private final ArrayList<TelemetryScheduler.Task> tasks = new ArrayList<>();
 
-    Type type[];
+    private LightningShuffleboardPeriodic(Builder builder) {
+        this.publishers = builder.publishers;
 
-    public LightningShuffleboardPeriodic(String tab, double period, Pair<String, Object>... values) {
-        this.values = values;
-        length = values.length;
-        type = new Type[length];
-        this.tab = tab;
-        this.loopTime = period;
-
-        int i = 0;
-        for (Pair<String, Object> value : values) {
-            if (value.getSecond() instanceof DoubleSupplier) {
-                Shuffleboard.getTab(tab).add(value.getFirst(), ((DoubleSupplier) value.getSecond()).getAsDouble());
-                type[i] = Type.DOUBLE;
-            } else if (value.getSecond() instanceof BooleanSupplier) {
-                Shuffleboard.getTab(tab).add(value.getFirst(), ((BooleanSupplier) value.getSecond()).getAsBoolean());
-                type[i] = Type.BOOLEAN;
-            } else if (value.getSecond() instanceof Supplier<?>) {
-                //the warnings are wrong, we do check the cast
-                if (((Supplier<?>) value.getSecond()).get() instanceof double[]) {
-                    Shuffleboard.getTab(tab).add(value.getFirst(), ((Supplier<double[]>) value.getSecond()).get());
-                    type[i] = Type.DOUBLE_ARRAY;
-                } else if (((Supplier<?>) value.getSecond()).get() instanceof boolean[]) {
-                    Shuffleboard.getTab(tab).add(value.getFirst(), ((Supplier<boolean[]>) value.getSecond()).get());
-                    type[i] = Type.BOOLEAN_ARRAY;
-                } else if (((Supplier<?>) value.getSecond()).get() instanceof String[]) {
-                    Shuffleboard.getTab(tab).add(value.getFirst(), ((Supplier<String[]>) value.getSecond()).get());
-                    type[i] = Type.STRING_ARRAY;
-                } else if (((Supplier<?>) value.getSecond()).get() instanceof String) {
-                    Shuffleboard.getTab(tab).add(value.getFirst(), ((Supplier<String>) value.getSecond()).get());
-                    type[i] = Type.STRING;
-                } else {
-                    type[i] = Type.NULL;
-                }
-            } else {
-                type[i] = Type.NULL;
-            }
-            i++;
+        for (int i = 0; i < builder.samplers.size(); i++) {
+            tasks.add(TelemetryScheduler.schedule(builder.periods.get(i), builder.samplers.get(i)));
         }
     }
+
+    /**
+     * @param tab the tab the values will be placed in
+     * @param period how often each value is published (seconds)
+     * @param values key, supplier pairs for each value to log
+     * @see #builder(String)
+     */
+    @SafeVarargs
+    public LightningShuffleboardPeriodic(String tab, double period, Pair<String, Object>... values) {
+        this(builder(tab).withPeriod(period).addAll(values));
+    }
+
     //default period is 5 seconds
+    @SafeVarargs
     public LightningShuffleboardPeriodic(String tab, Pair<String, Object>... values) {
         this(tab, 5d, values);
     }
 
-    
-    //call this in your periodic
+    /**
+     * Start building a periodic tab
+     *
+     * @param tab the tab the values will be placed in
+     * @return a new builder, with a default period of 5 seconds
+     */
+    public static Builder builder(String tab) {
+        return new Builder(tab);
+    }
+
+    /**
+     * Start building a group of values that are sampled together, off the main thread. Use this
+     * for expensive suppliers, or values that must be published as one consistent snapshot.
+     *
+     * @param tab the tab the values will be placed in
+     * @param period how often the group is sampled (seconds)
+     * @return a new snapshot group builder
+     * @see SnapshotGroup
+     */
+    public static SnapshotGroup.Builder snapshotGroup(String tab, double period) {
+        return new SnapshotGroup.Builder(tab, period);
+    }
+
+    /**
+     * Stops publishing every value of this object and releases the publishers
+     */
+    public void cancel() {
+        for (TelemetryScheduler.Task task : tasks) {
+            task.cancel();
+        }
+        tasks.clear();
+
+        for (Publisher publisher : publishers) {
+            publisher.close();
+        }
+        publishers.clear();
+    }
+
+    /**
+     * @deprecated values are published by {@link TelemetryScheduler}, which LightningRobot runs
+     * every loop. Calling this is harmless but no longer needed, and safe from any thread since
+     * the scheduler only lets one caller run it at a time.
+     */
+    @Deprecated
     public void loop() {
-        double currentTime = Timer.getFPGATimestamp();
-
-        if (currentTime-lastTime > loopTime / length) {
-            switch (type[index]) {
-                case DOUBLE:
-                    NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tab).getEntry(values[index].getFirst()).setDouble(((DoubleSupplier) (values[index].getSecond())).getAsDouble());
-                    break;
-                case BOOLEAN:
-                    NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tab).getEntry(values[index].getFirst()).setBoolean(((BooleanSupplier) values[index].getSecond()).getAsBoolean());
-                    break;
-                case STRING:
-                    NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tab).getEntry(values[index].getFirst()).setString(((Supplier<String>) values[index].getSecond()).get());
-                    break;
-                case DOUBLE_ARRAY:
-                    NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tab).getEntry(values[index].getFirst()).setDoubleArray(((Supplier<double[]>) values[index].getSecond()).get());
-                    break;
-                case BOOLEAN_ARRAY:
-                    NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tab).getEntry(values[index].getFirst()).setBooleanArray(((Supplier<boolean[]>) values[index].getSecond()).get());
-                    break;
-                case STRING_ARRAY:
-                    NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tab).getEntry(values[index].getFirst()).setStringArray(((Supplier<String[]>) values[index].getSecond()).get());
-                    break;
-                case NULL:
-                    System.out.println(values[index].getFirst() + " is null");
-                break;
+        TelemetryScheduler.run();
+    }
+
+    /**
+     * Binds each value to its publisher and sampling lambda as it is added, so publishing a value
+     * is a single call with no lookups or casts.
+     */
+    public static class Builder {
+        private final ShuffleboardTab tab;
+        private final NetworkTable table;
+        private double period = 5d;
+
+        private final ArrayList<Publisher> publishers = new ArrayList<>();
+        private final ArrayList<Runnable> samplers = new ArrayList<>();
+        private final ArrayList<Double> periods = new ArrayList<>();
+
+        private Builder(String tabName) {
+            this.tab = Shuffleboard.getTab(tabName);
+            this.table = NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tabName);
+        }
+
+        /**
+         * @param period the period (seconds) used by values added without one
+         * @return this builder
+         */
+        public Builder withPeriod(double period) {
+            this.period = period;
+            return this;
+        }
+
+        private void bind(Publisher publisher, double period, Runnable sampler) {
+            publishers.add(publisher);
+            samplers.add(sampler);
+            periods.add(period);
+        }
+
+        public Builder addDouble(String key, double period, DoubleSupplier value) {
+            tab.add(key, 0d);
+            DoublePublisher publisher = table.getDoubleTopic(key).publish();
+            bind(publisher, period, () -> publisher.set(value.getAsDouble()));
+            return this;
+        }
+
+        public Builder addDouble(String key, DoubleSupplier value) {
+            return addDouble(key, period, value);
+        }
+
+        public Builder addBoolean(String key, double period, BooleanSupplier value) {
+            tab.add(key, false);
+            BooleanPublisher publisher = table.getBooleanTopic(key).publish();
+            bind(publisher, period, () -> publisher.set(value.getAsBoolean()));
+            return this;
+        }
+
+        public Builder addBoolean(String key, BooleanSupplier value) {
+            return addBoolean(key, period, value);
+        }
+
+        public Builder addString(String key, double period, Supplier<String> value) {
+            tab.add(key, "");
+            StringPublisher publisher = table.getStringTopic(key).publish();
+            bind(publisher, period, () -> publisher.set(value.get()));
+            return this;
+        }
+
+        public Builder addString(String key, Supplier<String> value) {
+            return addString(key, period, value);
+        }
+
+        public Builder addDoubleArray(String key, double period, Supplier<double[]> value) {
+            tab.add(key, new double[0]);
+            DoubleArrayPublisher publisher = table.getDoubleArrayTopic(key).publish();
+            bind(publisher, period, () -> publisher.set(value.get()));
+            return this;
+        }
+
+        public Builder addDoubleArray(String key, Supplier<double[]> value) {
+            return addDoubleArray(key, period, value);
+        }
+
+        public Builder addBooleanArray(String key, double period, Supplier<boolean[]> value) {
+            tab.add(key, new boolean[0]);
+            BooleanArrayPublisher publisher = table.getBooleanArrayTopic(key).publish();
+            bind(publisher, period, () -> publisher.set(value.get()));
+            return this;
+        }
+
+        public Builder addBooleanArray(String key, Supplier<boolean[]> value) {
+            return addBooleanArray(key, period, value);
+        }
+
+        public Builder addStringArray(String key, double period, Supplier<String[]> value) {
+            tab.add(key, new String[0]);
+            StringArrayPublisher publisher = table.getStringArrayTopic(key).publish();
+            bind(publisher, period, () -> publisher.set(value.get()));
+            return this;
+        }
+
+        public Builder addStringArray(String key, Supplier<String[]> value) {
+            return addStringArray(key, period, value);
+        }
+
+        /**
+         * Adds an untyped supplier, resolving its type once here. Prefer the typed add methods.
+         *
+         * @param key the name of the shuffleboard entry
+         * @param period how often the value is published (seconds)
+         * @param value a DoubleSupplier, BooleanSupplier, or Supplier of a String, double[],
+         *        boolean[] or String[]
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public Builder add(String key, double period, Object value) {
+            if (value instanceof DoubleSupplier) {
+                return addDouble(key, period, (DoubleSupplier) value);
+            } else if (value instanceof BooleanSupplier) {
+                return addBoolean(key, period, (BooleanSupplier) value);
+            } else if (value instanceof Supplier<?>) {
+                //the warnings are wrong, we do check the cast
+                Object sample = ((Supplier<?>) value).get();
+                if (sample instanceof double[]) {
+                    return addDoubleArray(key, period, (Supplier<double[]>) value);
+                } else if (sample instanceof boolean[]) {
+                    return addBooleanArray(key, period, (Supplier<boolean[]>) value);
+                } else if (sample instanceof String[]) {
+                    return addStringArray(key, period, (Supplier<String[]>) value);
+                } else if (sample instanceof String) {
+                    return addString(key, period, (Supplier<String>) value);
+                }
             }
 
-            lastTime = currentTime;
-            index++;
-            if (index == length) {
-                index = 0;
+            System.out.println(key + " is null");
+            return this;
+        }
+
+        public Builder add(String key, Object value) {
+            return add(key, period, value);
+        }
+
+        private Builder addAll(Pair<String, Object>[] values) {
+            for (Pair<String, Object> value : values) {
+                add(value.getFirst(), value.getSecond());
             }
+            return this;
+        }
+
+        /**
+         * @return the periodic tab, with every value scheduled
+         */
+        public LightningShuffleboardPeriodic build() {
+            return new LightningShuffleboardPeriodic(this);
         }
     }
 }
@@ -0,0 +1,175 @@
+package frc.thunder.shuffleboard;
+
+import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+
+/**
+ * A group of values sampled together on a background thread at a fixed rate. Every sample of the
+ * group is captured back to back into one snapshot, then published with a single shared timestamp,
+ * so related values (eg a mechanism's position and its setpoint) always line up on the dashboard
+ * and in logs. Neither the sampling nor the NT publish runs on the main loop.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * LightningShuffleboardPeriodic.snapshotGroup("Arm", 0.05)
+ *         .addDouble("position", this::getPosition)
+ *         .addDouble("setpoint", this::getSetpoint)
+ *         .start();
+ * </pre>
+ *
+ * @implNote the suppliers are called from the background thread, so they must be safe to call off
+ *           the main thread (eg return cached or volatile fields, or thread safe sensor reads)
+ */
+public class SnapshotGroup implements AutoCloseable {
+    private final DoubleSupplier[] doubleSuppliers;
+    private final DoublePublisher[] doublePublishers;
+    private final double[] doubleValues;
+
+    private final BooleanSupplier[] booleanSuppliers;
+    private final BooleanPublisher[] booleanPublishers;
+    private final boolean[] booleanValues;
+
+    private final double period;
+    private final Notifier notifier;
+
+    private volatile long lastSnapshotTime = 0;
+
+    private SnapshotGroup(Builder builder) {
+        doubleSuppliers = builder.doubleSuppliers.toArray(new DoubleSupplier[0]);
+        doublePublishers = builder.doublePublishers.toArray(new DoublePublisher[0]);
+        doubleValues = new double[doubleSuppliers.length];
+
+        booleanSuppliers = builder.booleanSuppliers.toArray(new BooleanSupplier[0]);
+        booleanPublishers = builder.booleanPublishers.toArray(new BooleanPublisher[0]);
+        booleanValues = new boolean[booleanSuppliers.length];
+
+        period = builder.period;
+        notifier = new Notifier(this::sample);
+        notifier.setName("SnapshotGroup " + builder.tabName);
+    }
+
+    /**
+     * Captures every value of the group, then publishes the snapshot
+     */
+    private void sample() {
+        long time = NetworkTablesJNI.now();
+
+        try {
+            for (int i = 0; i < doubleSuppliers.length; i++) {
+                doubleValues[i] = doubleSuppliers[i].getAsDouble();
+            }
+            for (int i = 0; i < booleanSuppliers.length; i++) {
+                booleanValues[i] = booleanSuppliers[i].getAsBoolean();
+            }
+        } catch (RuntimeException e) {
+            // a partial snapshot would not be consistent, so skip this one entirely
+            System.err.println("SnapshotGroup sample failed: " + e);
+            return;
+        }
+
+        for (int i = 0; i < doublePublishers.length; i++) {
+            doublePublishers[i].set(doubleValues[i], time);
+        }
+        for (int i = 0; i < booleanPublishers.length; i++) {
+            booleanPublishers[i].set(booleanValues[i], time);
+        }
+
+        lastSnapshotTime = time;
+    }
+
+    /**
+     * Starts sampling the group on its background thread
+     */
+    public void start() {
+        notifier.startPeriodic(period);
+    }
+
+    /**
+     * Stops sampling the group, it can be restarted with {@link #start()}
+     */
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * @return the NT timestamp (microseconds) shared by every value of the last snapshot, 0 if none
+     *         has been taken
+     */
+    public long getLastSnapshotTime() {
+        return lastSnapshotTime;
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+        for (DoublePublisher publisher : doublePublishers) {
+            publisher.close();
+        }
+        for (BooleanPublisher publisher : booleanPublishers) {
+            publisher.close();
+        }
+    }
+
+    /**
+     * Collects the values of a group. The publishers are created here, on the main thread.
+     */
+    public static class Builder {
+        private final String tabName;
+        private final ShuffleboardTab tab;
+        private final NetworkTable table;
+        private final double period;
+
+        private final ArrayList<DoubleSupplier> doubleSuppliers = new ArrayList<>();
+        private final ArrayList<DoublePublisher> doublePublishers = new ArrayList<>();
+        private final ArrayList<BooleanSupplier> booleanSuppliers = new ArrayList<>();
+        private final ArrayList<BooleanPublisher> booleanPublishers = new ArrayList<>();
+
+        Builder(String tabName, double period) {
+            this.tabName = tabName;
+            this.tab = Shuffleboard.getTab(tabName);
+            this.table = NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable(tabName);
+            this.period = period;
+        }
+
+        public Builder addDouble(String key, DoubleSupplier value) {
+            tab.add(key, 0d);
+            doubleSuppliers.add(value);
+            doublePublishers.add(table.getDoubleTopic(key).publish());
+            return this;
+        }
+
+        public Builder addBoolean(String key, BooleanSupplier value) {
+            tab.add(key, false);
+            booleanSuppliers.add(value);
+            booleanPublishers.add(table.getBooleanTopic(key).publish());
+            return this;
+        }
+
+        /**
+         * @return the group, not yet started
+         */
+        public SnapshotGroup build() {
+            return new SnapshotGroup(this);
+        }
+
+        /**
+         * @return the group, already sampling
+         */
+        public SnapshotGroup start() {
+            SnapshotGroup group = build();
+            group.start();
+            return group;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package frc.thunder.shuffleboard;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Library-wide scheduler for periodic telemetry. It is driven once per loop from
+ * {@link frc.thunder.LightningRobot#robotPeriodic()}, so subsystems only register values and
+ * never have to call anything periodically themselves.
+ *
+ * Tasks live in a hashed timing wheel: every slot holds the tasks due on that tick, so a call to
+ * {@link #run()} only touches the tasks that are actually due (plus the occasional long-period
+ * task counting down its remaining laps). Tasks registered with the same period are staggered
+ * across ticks, so hundreds of values don't all publish in the same loop.
+ *
+ * USAGE: {@code TelemetryScheduler.schedule(0.5, () -> publisher.set(arm.getAngle()));}
+ *
+ * @implNote schedule and run are synchronized, so a legacy caller driving
+ *           {@link LightningShuffleboardPeriodic#loop()} from its own thread can't run the wheel
+ *           at the same time as LightningRobot. Tasks run while the lock is held, so keep them short.
+ */
+public final class TelemetryScheduler {
+
+    /** Length of one wheel tick in seconds, matches the LightningRobot loop time */
+    public static final double TICK_PERIOD = 0.02;
+
+    // must be a power of two, 256 ticks is ~5 seconds of wheel before a task needs extra laps
+    private static final int WHEEL_SIZE = 256;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final Task[] wheel = new Task[WHEEL_SIZE];
+
+    private static long currentTick = 0;
+    private static double nextTickTime = Double.NaN;
+    private static int taskCount = 0;
+    private static int staggerCounter = 0;
+    private static long runCount = 0;
+
+    /**
+     * Private constructor
+     */
+    private TelemetryScheduler() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * A scheduled periodic task. Tasks are intrusive list nodes in the wheel, so scheduling and
+     * running them does not allocate.
+     */
+    public static final class Task {
+        private final Runnable action;
+        private final int periodTicks;
+        private int rounds;
+        private long lastRun = -1;
+        private volatile boolean cancelled = false;
+        private Task next;
+
+        private Task(Runnable action, int periodTicks) {
+            this.action = action;
+            this.periodTicks = periodTicks;
+        }
+
+        /**
+         * Stops the task, it is dropped from the wheel the next time its slot comes around
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @return whether the task has been cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return the period of the task in seconds (rounded to the tick period)
+         */
+        public double getPeriod() {
+            return periodTicks * TICK_PERIOD;
+        }
+    }
+
+    /**
+     * Schedules an action to run every period seconds. The first run is staggered within the
+     * first period so tasks with equal periods are spread evenly across ticks.
+     *
+     * @param period the period in seconds, rounded to a multiple of {@link #TICK_PERIOD}
+     * @param action the action to run
+     * @return the scheduled task, which can be used to cancel it
+     */
+    public static synchronized Task schedule(double period, Runnable action) {
+        Task task = new Task(action, Math.max(1, (int) Math.round(period / TICK_PERIOD)));
+
+        insert(task, 1 + (staggerCounter++ % task.periodTicks));
+        taskCount++;
+
+        return task;
+    }
+
+    /**
+     * Places a task in the wheel so it comes due delayTicks ticks from now
+     */
+    private static void insert(Task task, int delayTicks) {
+        int slot = (int) ((currentTick + delayTicks) & WHEEL_MASK);
+
+        task.rounds = (delayTicks - 1) / WHEEL_SIZE;
+        task.next = wheel[slot];
+        wheel[slot] = task;
+    }
+
+    /**
+     * Advances the wheel to the current time, running every task that came due. Calling this more
+     * than once per tick is harmless, later calls find nothing to do.
+     */
+    public static void run() {
+        run(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Advances the wheel to the given time, running every task that came due. Each task runs at
+     * most once per call, however many of its periods were missed.
+     *
+     * @param time the current FPGA timestamp in seconds
+     */
+    public static synchronized void run(double time) {
+        if (Double.isNaN(nextTickTime)) {
+            nextTickTime = time;
+        }
+
+        // after a stall the missed ticks are walked through so every task keeps its phase, but a task
+        // only runs once per call (see tick), so a late loop is not hit with a burst of replays
+        runCount++;
+        int ticks = 0;
+        while (time >= nextTickTime && ticks < WHEEL_SIZE) {
+            tick();
+            nextTickTime += TICK_PERIOD;
+            ticks++;
+        }
+
+        if (time >= nextTickTime) {
+            nextTickTime = time + TICK_PERIOD;
+        }
+    }
+
+    /**
+     * Advances the wheel by a single slot
+     */
+    private static void tick() {
+        currentTick++;
+        int slot = (int) (currentTick & WHEEL_MASK);
+
+        // detach the slot so tasks re-inserted into it (period a multiple of the wheel) wait a lap
+        Task task = wheel[slot];
+        wheel[slot] = null;
+
+        while (task != null) {
+            Task next = task.next;
+
+            if (task.cancelled) {
+                task.next = null;
+                taskCount--;
+            } else if (task.rounds > 0) {
+                task.rounds--;
+                task.next = wheel[slot];
+                wheel[slot] = task;
+            } else {
+                if (task.lastRun != runCount) {
+                    task.lastRun = runCount;
+                    try {
+                        task.action.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("TelemetryScheduler task failed: " + e);
+                    }
+                }
+                insert(task, task.periodTicks);
+            }
+
+            task = next;
+        }
+    }
+
+    /**
+     * @return the number of tasks currently in the wheel (cancelled tasks count until dropped)
+     */
+    public static synchronized int getTaskCount() {
+        return taskCount;
+    }
+}
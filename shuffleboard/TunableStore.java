@@ -0,0 +1,224 @@
+package frc.thunder.shuffleboard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Keeps tunables edited on the dashboard across reboots. Values read through
+ * {@link LightningShuffleboard#getDouble(String, String, double)} that change are recorded here, and
+ * a background notifier writes them to a small binary file at a low rate, coalescing every change
+ * since the last write. Writes go to a temporary file that is then atomically renamed over the
+ * store, so a power cut mid-write never corrupts it.
+ *
+ * {@link frc.thunder.LightningRobot#robotInit()} reloads the store with a single read, and persisted
+ * values are then used in place of the code defaults (each one is logged at load, so a surprising
+ * value can be traced back to the store). Since subsystems are usually built before robotInit, the
+ * first lookup loads the store early if needed. {@link #clear(String)} and {@link #clearAll()} go
+ * back to the code defaults right away.
+ */
+public final class TunableStore {
+
+    // "TUNE", so a stray or truncated file is ignored rather than misread
+    private static final int MAGIC = 0x54554e45;
+    private static final int VERSION = 1;
+
+    /** How often (seconds) changed tunables are written to disk */
+    private static final double WRITE_PERIOD = 2.0;
+
+    private static final HashMap<String, Double> values = new HashMap<>();
+    private static boolean dirty = false;
+
+    // held for a whole write, so flush and the notifier never write the temporary file at once,
+    // and a newer snapshot is never renamed over by an older one
+    private static final Object ioLock = new Object();
+
+    private static File file;
+    private static Notifier writer;
+
+    /**
+     * Private constructor
+     */
+    private TunableStore() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * Loads the store from tunables.bin in the operating directory (/home/lvuser on the robot) and
+     * starts the background writer
+     */
+    public static synchronized void load() {
+        load(new File(Filesystem.getOperatingDirectory(), "tunables.bin"));
+    }
+
+    /**
+     * Loads the store from the given file and starts the background writer. Does nothing if the
+     * store has already been loaded.
+     *
+     * @param storeFile the file to load from and persist to
+     */
+    public static synchronized void load(File storeFile) {
+        if (file != null) {
+            return;
+        }
+        file = storeFile;
+
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    // read everything before using any of it, so a damaged store is ignored as a
+                    // whole instead of half loaded
+                    int count = in.readInt();
+                    HashMap<String, Double> loaded = new HashMap<>();
+                    for (int i = 0; i < count; i++) {
+                        String key = in.readUTF();
+                        loaded.put(key, in.readDouble());
+                    }
+                    if (in.available() != 0) {
+                        throw new IOException(in.available() + " unexpected bytes after " + count + " tunables");
+                    }
+
+                    for (Map.Entry<String, Double> entry : loaded.entrySet()) {
+                        values.put(entry.getKey(), entry.getValue());
+                        System.out.println("Tunable " + entry.getKey() + " = " + entry.getValue() + " (persisted, overrides the code default)");
+                    }
+                    System.out.println("Loaded " + count + " tunables from " + file);
+                } else {
+                    System.err.println("Ignoring unrecognized tunable store " + file);
+                }
+            } catch (EOFException e) {
+                System.err.println("Ignoring truncated tunable store " + file + ", using code defaults");
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable tunable store " + file + ", using code defaults: " + e.getMessage());
+            }
+        }
+
+        writer = new Notifier(TunableStore::write);
+        writer.setName("TunableStore");
+        writer.startPeriodic(WRITE_PERIOD);
+    }
+
+    /**
+     * @param key the tunable's key (tab/key)
+     * @return the persisted value, or null if the tunable has never been changed
+     */
+    public static synchronized Double get(String key) {
+        if (file == null) {
+            load();
+        }
+        return values.get(key);
+    }
+
+    /**
+     * Records a tunable's new value, it is written out with the next coalesced write
+     *
+     * @param key the tunable's key (tab/key)
+     * @param value the new value
+     */
+    public static synchronized void put(String key, double value) {
+        Double previous = values.put(key, value);
+        // compare bits, so a NaN tunable doesn't count as a change on every poll
+        if (previous == null || Double.compare(previous, value) != 0) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forgets a tunable's persisted value and puts the tunable back to its code default on the
+     * dashboard, so it isn't persisted again by the next poll. Call from the main thread, like
+     * {@link LightningShuffleboard#getDouble(String, String, double)}.
+     *
+     * @param key the tunable's key (tab/key)
+     */
+    public static void clear(String key) {
+        synchronized (TunableStore.class) {
+            if (values.remove(key) != null) {
+                dirty = true;
+            }
+        }
+        LightningShuffleboard.resetTunable(key);
+    }
+
+    /**
+     * Forgets every persisted value and puts every tunable back to its code default on the
+     * dashboard. Call from the main thread, like
+     * {@link LightningShuffleboard#getDouble(String, String, double)}.
+     */
+    public static void clearAll() {
+        synchronized (TunableStore.class) {
+            if (!values.isEmpty()) {
+                values.clear();
+                dirty = true;
+            }
+        }
+        LightningShuffleboard.resetTunables();
+    }
+
+    /**
+     * Writes the store now if anything changed, eg before a planned shutdown
+     */
+    public static void flush() {
+        write();
+    }
+
+    /**
+     * Writes every tunable to a temporary file and renames it over the store
+     */
+    private static void write() {
+        synchronized (ioLock) {
+            File target;
+            HashMap<String, Double> snapshot;
+
+            synchronized (TunableStore.class) {
+                if (!dirty || file == null) {
+                    return;
+                }
+                target = file;
+                snapshot = new HashMap<>(values);
+                dirty = false;
+            }
+
+            write(target, snapshot);
+        }
+    }
+
+    private static void write(File target, HashMap<String, Double> snapshot) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Double> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+            out.flush();
+
+            File temp = new File(target.getPath() + ".tmp");
+            try (FileOutputStream stream = new FileOutputStream(temp)) {
+                bytes.writeTo(stream);
+                stream.getFD().sync();
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Unable to write tunable store: " + e.getMessage());
+            synchronized (TunableStore.class) {
+                dirty = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package frc.thunder.util;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Maps NT timestamps onto the FPGA clock, so vision frames can be compared with odometry. NT
+ * stamps values with its own clock (and server time on clients), which is not guaranteed to be
+ * the FPGA clock (eg in simulation, or when the robot is not the NT server).
+ *
+ * A background notifier samples both clocks back to back. Over a short window it keeps the sample
+ * with the tightest read (least disturbed by preemption), rejects estimates that jump away from
+ * the current one unless the jump persists (a real clock step), and smooths what is left.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * double captureTime = ClockOffsetEstimator.toFPGATime(frame.timestamp) - latency / 1000d;
+ * </pre>
+ */
+public final class ClockOffsetEstimator {
+    /** How often (seconds) the clocks are sampled */
+    public static final double SAMPLE_PERIOD = 0.1;
+
+    /** Number of samples the tightest read is picked from */
+    private static final int WINDOW = 16;
+
+    /** Weight of each new estimate */
+    private static final double SMOOTHING = 0.1;
+
+    /** Largest jump (microseconds) accepted as noise rather than an outlier */
+    private static final double OUTLIER_THRESHOLD = 1000;
+
+    /** Consecutive outliers after which the jump is accepted as a clock step */
+    private static final int STEP_COUNT = 5;
+
+    private static final double[] offsets = new double[WINDOW];
+    private static final long[] delays = new long[WINDOW];
+    private static int sampleCount = 0;
+    private static int outlierCount = 0;
+    private static long rejectedCount = 0;
+
+    // FPGA time minus NT time (microseconds)
+    private static volatile double offset = 0;
+    private static volatile boolean initialized = false;
+    private static Notifier notifier = null;
+
+    /**
+     * Private constructor
+     */
+    private ClockOffsetEstimator() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * Starts sampling the clocks, called automatically on first use
+     */
+    public static synchronized void start() {
+        if (notifier != null) {
+            return;
+        }
+
+        // take a first sample right away, so conversions are aligned from the start
+        sample();
+        notifier = new Notifier(ClockOffsetEstimator::sample);
+        notifier.setName("ClockOffsetEstimator");
+        notifier.startPeriodic(SAMPLE_PERIOD);
+    }
+
+    /**
+     * Reads both clocks and updates the estimate
+     */
+    private static synchronized void sample() {
+        long before = RobotController.getFPGATime();
+        long nt = NetworkTablesJNI.now();
+        long after = RobotController.getFPGATime();
+
+        int index = sampleCount % WINDOW;
+        offsets[index] = (before + after) / 2d - nt;
+        delays[index] = after - before;
+        sampleCount++;
+
+        // the tightest read in the window is the most accurate
+        int best = 0;
+        int filled = Math.min(sampleCount, WINDOW);
+        for (int i = 1; i < filled; i++) {
+            if (delays[i] < delays[best]) {
+                best = i;
+            }
+        }
+        double candidate = offsets[best];
+
+        if (!initialized) {
+            offset = candidate;
+            initialized = true;
+        } else if (Math.abs(candidate - offset) > OUTLIER_THRESHOLD) {
+            rejectedCount++;
+            if (++outlierCount >= STEP_COUNT) {
+                // the clock really did step, start over from the new offset
+                offset = candidate;
+                outlierCount = 0;
+            }
+        } else {
+            offset += SMOOTHING * (candidate - offset);
+            outlierCount = 0;
+        }
+    }
+
+    /**
+     * @param ntTime a local NT timestamp (microseconds), eg from getAtomic or readQueue
+     * @return the same moment on the FPGA clock (seconds)
+     */
+    public static double toFPGATime(long ntTime) {
+        if (!initialized) {
+            start();
+        }
+        return (ntTime + offset) / 1.0e6;
+    }
+
+    /**
+     * @param serverTime an NT server timestamp (microseconds)
+     * @return the same moment on the FPGA clock (seconds)
+     */
+    public static double serverToFPGATime(long serverTime) {
+        // the offset is only present on clients, the server's local time is server time
+        long serverOffset = NetworkTableInstance.getDefault().getServerTimeOffset().orElse(0);
+        return toFPGATime(serverTime - serverOffset);
+    }
+
+    /**
+     * @return the current estimate of FPGA time minus NT time (seconds)
+     */
+    public static double getOffset() {
+        return offset / 1.0e6;
+    }
+
+    /**
+     * @return the number of samples rejected as outliers
+     */
+    public static long getRejectedCount() {
+        return rejectedCount;
+    }
+}
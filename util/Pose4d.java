@@ -104,14 +104,25 @@ public class Pose4d extends Pose3d {
     }
 
     public double getConfidence() {
+        return getConfidence(tag_count, distance);
+    }
+
+    /**
+     * Confidence of a vision pose, used as its translation standard deviation (lower is better)
+     * 
+     * @param tagCount the number of tags the pose was solved from
+     * @param distance the average distance to the tags (meters)
+     * @return the confidence of the pose
+     */
+    public static double getConfidence(int tagCount, double distance) {
         double confidence = 18.0;
 
-        if (getMoreThanOneTarget() && getDistance() < 3) {
+        if (tagCount > 1 && distance < 3) {
             confidence = 0.3;
-        } else if (getMoreThanOneTarget()) {
-            confidence = 0.3 + ((getDistance() - 3) / 5 * 18);
-        } else if (getDistance() < 2) {
-            confidence = 0.7 + (getDistance() / 2 * 5.0);
+        } else if (tagCount > 1) {
+            confidence = 0.3 + ((distance - 3) / 5 * 18);
+        } else if (distance < 2) {
+            confidence = 0.7 + (distance / 2 * 5.0);
         }
 
         return confidence;
@@ -129,10 +140,19 @@ public class Pose4d extends Pose3d {
      * since the isPoseInRegion method was removed
      */
     private static boolean isPoseInRegion(Pose2d robotPose) {
-        return robotPose.getX() >= FIELD_BOTTOM_CORNER.getX()
-            && robotPose.getX() <= FIELD_TOP_CORNER.getX()
-            && robotPose.getY() >= FIELD_BOTTOM_CORNER.getY()
-            && robotPose.getY() <= FIELD_TOP_CORNER.getY();
+        return isInField(robotPose.getX(), robotPose.getY());
+    }
+
+    /**
+     * @param x the x coordinate (meters)
+     * @param y the y coordinate (meters)
+     * @return whether the point is inside the field
+     */
+    public static boolean isInField(double x, double y) {
+        return x >= FIELD_BOTTOM_CORNER.getX()
+            && x <= FIELD_TOP_CORNER.getX()
+            && y >= FIELD_BOTTOM_CORNER.getY()
+            && y <= FIELD_TOP_CORNER.getY();
     }
 
     public boolean trust() {
@@ -0,0 +1,103 @@
+package frc.thunder.util;
+
+/**
+ * Many vision poses held as flat columns (one primitive array per field, indexed by pose), filled
+ * by {@link PoseConverter#toPoseBatch(double[][], double[], int, PoseBatch)}. Suited to converting
+ * several cameras, queued frames or a log replay at once, and to tight loops over the results.
+ *
+ * Translation units are meters, rotation units are radians, latency is milliseconds and timestamps
+ * are seconds, same as {@link PoseMeasurement}.
+ */
+public class PoseBatch {
+    public final double[] x;
+    public final double[] y;
+    public final double[] z;
+    public final double[] roll;
+    public final double[] pitch;
+    public final double[] yaw;
+    public final double[] latency;
+    public final double[] timestamp;
+    public final int[] tagCount;
+    public final double[] tagSpan;
+    public final double[] distance;
+    public final double[] area;
+    public final double[] ambiguity;
+    public final boolean[] valid;
+
+    int size = 0;
+
+    /**
+     * @param capacity the most poses the batch can hold
+     */
+    public PoseBatch(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        roll = new double[capacity];
+        pitch = new double[capacity];
+        yaw = new double[capacity];
+        latency = new double[capacity];
+        timestamp = new double[capacity];
+        tagCount = new int[capacity];
+        tagSpan = new double[capacity];
+        distance = new double[capacity];
+        area = new double[capacity];
+        ambiguity = new double[capacity];
+        valid = new boolean[capacity];
+    }
+
+    /**
+     * @return the number of poses converted into the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the most poses the batch can hold
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * @param i the pose index
+     * @return the time the frame was captured (seconds), same as
+     *         {@link PoseMeasurement#getFPGATimestamp()}
+     */
+    public double getFPGATimestamp(int i) {
+        return timestamp[i] - latency[i] / 1000d;
+    }
+
+    /**
+     * Copy one pose of the batch into a measurement
+     *
+     * @param i the pose index
+     * @param out the measurement to copy into
+     * @return whether the pose was valid
+     */
+    public boolean get(int i, PoseMeasurement out) {
+        if (!valid[i]) {
+            out.clear();
+            out.setTimestamp(timestamp[i]);
+            return false;
+        }
+
+        out.clear();
+        out.x = x[i];
+        out.y = y[i];
+        out.z = z[i];
+        out.roll = roll[i];
+        out.pitch = pitch[i];
+        out.yaw = yaw[i];
+        out.latency = latency[i];
+        out.timestamp = timestamp[i];
+        out.tagCount = tagCount[i];
+        out.tagSpan = tagSpan[i];
+        out.distance = distance[i];
+        out.area = area[i];
+        out.ambiguity = ambiguity[i];
+        out.valid = true;
+        return true;
+    }
+}
@@ -1,5 +1,7 @@
 package frc.thunder.util;
 
+import java.util.Arrays;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
@@ -8,6 +10,14 @@ import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation3d;
 
 public class PoseConverter {
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180;
+
+    /** Values before the per tag data of a limelight pose array */
+    private static final int POSE_VALUES = 11;
+
+    /** id, txnc, tync, ta, distToCamera, distToRobot, ambiguity for each tag after the pose */
+    private static final int VALUES_PER_TAG = 7;
+
     /**
      * Convert a limelight pose array to a Pose4d
      * 
@@ -23,6 +33,126 @@ public class PoseConverter {
         }
     }
 
+    /**
+     * Decode a limelight pose array into an existing measurement, without allocating
+     * 
+     * @param ntValues  array of at least 10 doubles containing translation (X,Y,Z)
+     *                  Rotation(Roll,Pitch,Yaw), total latency (cl+tl), tag count,
+     *                  tag span, average distance and average area
+     * @param timestamp the NT timestamp of the array (seconds)
+     * @param out       the measurement to decode into, cleared if the array holds no pose
+     * @return whether the array held a pose
+     */
+    public static boolean toPoseMeasurement(double[] ntValues, double timestamp, PoseMeasurement out) {
+        if (ntValues.length >= 10) {
+            out.set(ntValues, timestamp);
+            return true;
+        } else {
+            out.clear();
+            out.setTimestamp(timestamp);
+            return false;
+        }
+    }
+
+    /**
+     * Find the highest tag ambiguity in a limelight pose array, from the per tag values that
+     * follow the pose
+     * 
+     * @param ntValues a limelight pose array (eg botpose_wpiblue)
+     * @return the highest ambiguity of the tags, 0 if the array has no per tag values
+     */
+    public static double getMaxAmbiguity(double[] ntValues) {
+        double max = 0;
+        for (int i = POSE_VALUES + VALUES_PER_TAG - 1; i < ntValues.length; i += VALUES_PER_TAG) {
+            max = Math.max(max, ntValues[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Convert many limelight pose arrays at once into flat columns, without allocating. Each column
+     * is filled by its own simple loop, and the degree to radian conversion runs over whole columns,
+     * so the JIT can unroll and vectorize it.
+     * 
+     * @param ntValues   limelight pose arrays, see {@link #toPose4d(double[], double)}; arrays of
+     *                   fewer than 10 doubles are kept as invalid poses
+     * @param timestamps the timestamp of each array (seconds)
+     * @param count      the number of arrays to convert, capped at the batch's capacity
+     * @param out        the batch to convert into, its ambiguity column is zeroed
+     * @return the number of poses in the batch
+     */
+    public static int toPoseBatch(double[][] ntValues, double[] timestamps, int count, PoseBatch out) {
+        return toPoseBatch(ntValues, timestamps, null, count, out);
+    }
+
+    /**
+     * Convert many limelight pose arrays at once into flat columns, with the highest tag ambiguity
+     * of each array already known (eg from {@link #getMaxAmbiguity(double[])} while the arrays were
+     * queued), so the conversion never scans the per tag values
+     * 
+     * @param ntValues    limelight pose arrays, see {@link #toPose4d(double[], double)}; arrays of
+     *                    fewer than 10 doubles are kept as invalid poses
+     * @param timestamps  the timestamp of each array (seconds)
+     * @param ambiguities the highest tag ambiguity of each array, null for all zeros
+     * @param count       the number of arrays to convert, capped at the batch's capacity
+     * @param out         the batch to convert into
+     * @return the number of poses in the batch
+     */
+    public static int toPoseBatch(double[][] ntValues, double[] timestamps, double[] ambiguities, int count,
+            PoseBatch out) {
+        int n = Math.min(count, out.capacity());
+
+        for (int i = 0; i < n; i++) {
+            double[] pose = ntValues[i];
+            boolean valid = pose.length >= 10;
+            out.valid[i] = valid;
+            out.timestamp[i] = timestamps[i];
+            if (!valid) {
+                out.x[i] = out.y[i] = out.z[i] = 0;
+                out.roll[i] = out.pitch[i] = out.yaw[i] = 0;
+                out.latency[i] = out.tagSpan[i] = out.area[i] = 0;
+                out.tagCount[i] = 0;
+                out.distance[i] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+
+            out.x[i] = pose[0];
+            out.y[i] = pose[1];
+            out.z[i] = pose[2];
+            out.roll[i] = pose[3];
+            out.pitch[i] = pose[4];
+            out.yaw[i] = pose[5];
+            out.latency[i] = pose[6];
+            out.tagCount[i] = (int) pose[7];
+            out.tagSpan[i] = pose[8];
+            out.distance[i] = pose[9];
+            out.area[i] = pose.length > 10 ? pose[10] : 0;
+        }
+
+        if (ambiguities != null) {
+            System.arraycopy(ambiguities, 0, out.ambiguity, 0, n);
+        } else {
+            Arrays.fill(out.ambiguity, 0, n, 0);
+        }
+
+        // invalid poses hold zeros, so converting them too keeps the loops branch free
+        double[] roll = out.roll;
+        double[] pitch = out.pitch;
+        double[] yaw = out.yaw;
+        for (int i = 0; i < n; i++) {
+            roll[i] *= DEGREES_TO_RADIANS;
+        }
+        for (int i = 0; i < n; i++) {
+            pitch[i] *= DEGREES_TO_RADIANS;
+        }
+        for (int i = 0; i < n; i++) {
+            yaw[i] *= DEGREES_TO_RADIANS;
+        }
+
+        out.size = n;
+        return n;
+    }
+
     /**
      * Convert an array of 6 doubles to a Pose3d
      * 
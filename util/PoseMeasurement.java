@@ -0,0 +1,245 @@
+package frc.thunder.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Mutable, reusable vision pose measurement. Unlike {@link Pose4d}, it holds plain doubles, so a
+ * single instance can be decoded into every frame (see
+ * {@link PoseConverter#toPoseMeasurement(double[], double, PoseMeasurement)}) without allocating,
+ * and WPILib types are only built when they are actually needed.
+ *
+ * Translation units are meters, rotation units are radians, latency is milliseconds and timestamps
+ * are seconds.
+ */
+public class PoseMeasurement {
+    double x;
+    double y;
+    double z;
+    double roll;
+    double pitch;
+    double yaw;
+    double latency;
+    double timestamp;
+    int tagCount;
+    double tagSpan;
+    double distance = Double.POSITIVE_INFINITY;
+    double area;
+    double ambiguity;
+    boolean valid = false;
+
+    // built on first use and kept until the measurement changes
+    private Pose2d pose2d = null;
+    private Pose3d pose3d = null;
+
+    /**
+     * Set every field of the measurement from a limelight pose array (meters, degrees)
+     *
+     * @param ntValues at least 10 doubles: translation (X,Y,Z) Rotation(Roll,Pitch,Yaw), total
+     *        latency, tag count, tag span, average distance, and optionally average area followed
+     *        by the per tag values
+     * @param timestamp the NT timestamp of the array (seconds)
+     */
+    void set(double[] ntValues, double timestamp) {
+        x = ntValues[0];
+        y = ntValues[1];
+        z = ntValues[2];
+        roll = Math.toRadians(ntValues[3]);
+        pitch = Math.toRadians(ntValues[4]);
+        yaw = Math.toRadians(ntValues[5]);
+        latency = ntValues[6];
+        tagCount = (int) ntValues[7];
+        tagSpan = ntValues[8];
+        distance = ntValues[9];
+        area = ntValues.length > 10 ? ntValues[10] : 0;
+        ambiguity = PoseConverter.getMaxAmbiguity(ntValues);
+        this.timestamp = timestamp;
+        valid = true;
+        pose2d = null;
+        pose3d = null;
+    }
+
+    /**
+     * Mark the measurement as holding no pose
+     */
+    public void clear() {
+        x = y = z = roll = pitch = yaw = latency = tagSpan = area = ambiguity = 0;
+        tagCount = 0;
+        distance = Double.POSITIVE_INFINITY;
+        valid = false;
+        pose2d = null;
+        pose3d = null;
+    }
+
+    /**
+     * Copy another measurement into this one
+     *
+     * @param other the measurement to copy
+     */
+    public void copyFrom(PoseMeasurement other) {
+        x = other.x;
+        y = other.y;
+        z = other.z;
+        roll = other.roll;
+        pitch = other.pitch;
+        yaw = other.yaw;
+        latency = other.latency;
+        timestamp = other.timestamp;
+        tagCount = other.tagCount;
+        tagSpan = other.tagSpan;
+        distance = other.distance;
+        area = other.area;
+        ambiguity = other.ambiguity;
+        valid = other.valid;
+        pose2d = other.pose2d;
+        pose3d = other.pose3d;
+    }
+
+    /**
+     * @return whether the last decode held a pose
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getRoll() {
+        return roll;
+    }
+
+    public double getPitch() {
+        return pitch;
+    }
+
+    public double getYaw() {
+        return yaw;
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(double timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the time the frame was captured, same as {@link Pose4d#getFPGATimestamp()}
+     */
+    public double getFPGATimestamp() {
+        return timestamp - latency / 1000d;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public double getTagSpan() {
+        return tagSpan;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getArea() {
+        return area;
+    }
+
+    /**
+     * @return the highest pose ambiguity of the tags the measurement was solved from, 0 if unknown
+     */
+    public double getAmbiguity() {
+        return ambiguity;
+    }
+
+    /**
+     * @param ambiguity the highest pose ambiguity of the tags, for arrays decoded without their per
+     *        tag values
+     */
+    public void setAmbiguity(double ambiguity) {
+        this.ambiguity = ambiguity;
+    }
+
+    /**
+     * @return the confidence of the measurement, see {@link Pose4d#getConfidence()}
+     */
+    public double getConfidence() {
+        return Pose4d.getConfidence(tagCount, distance);
+    }
+
+    /**
+     * Standard deviations of the measurement for a pose estimator, same as
+     * {@link Pose4d#getStdDevs()} without building a matrix
+     *
+     * @param out filled with x, y (meters) and theta (radians), at least 3 long
+     * @return out
+     */
+    public double[] getStdDevs(double[] out) {
+        double confidence = getConfidence();
+        out[0] = confidence;
+        out[1] = confidence;
+        out[2] = Math.toRadians(DriverStation.isDisabled() ? confidence : 500 * confidence);
+        return out;
+    }
+
+    /**
+     * @return whether the measurement should be used, same checks as {@link Pose4d#trust()}
+     */
+    public boolean trust() {
+        return valid && (x != 0 && y != 0) && distance < 5 && Pose4d.isInField(x, y);
+    }
+
+    /**
+     * @return the Pose2d of the measurement, built on first use and shared until the measurement
+     *         changes
+     */
+    public Pose2d toPose2d() {
+        if (pose2d == null) {
+            pose2d = new Pose2d(x, y, new Rotation2d(yaw));
+        }
+        return pose2d;
+    }
+
+    /**
+     * @return the Pose3d of the measurement, built on first use and shared until the measurement
+     *         changes
+     */
+    public Pose3d toPose3d() {
+        if (pose3d == null) {
+            pose3d = new Pose3d(new Translation3d(x, y, z), new Rotation3d(roll, pitch, yaw));
+        }
+        return pose3d;
+    }
+
+    /**
+     * @return a new Pose4d of the measurement, for code that still takes Pose4d
+     */
+    public Pose4d toPose4d() {
+        Pose4d pose = new Pose4d(new Translation3d(x, y, z), new Rotation3d(roll, pitch, yaw), latency, timestamp);
+        pose.tag_count = tagCount;
+        pose.tag_span = tagSpan;
+        pose.distance = distance;
+        pose.area = area;
+        return pose;
+    }
+}
@@ -0,0 +1,134 @@
+package frc.thunder.vision;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A limelight REST report that is kept fresh in the background. A notifier re-requests the report
+ * (without blocking) well within its time to live, and readers always get the last good report
+ * instantly, along with how old it is. Until the first report arrives {@link #get()} returns an
+ * empty object, {@link #getOrWait()} waits for it instead.
+ *
+ * @see Limelight#getHWReportCache()
+ */
+public class CachedReport implements AutoCloseable {
+    private final Supplier<CompletableFuture<String>> request;
+    private final double ttl;
+    private final Notifier notifier;
+    private final AtomicBoolean inFlight = new AtomicBoolean(false);
+
+    private volatile JsonNode report = Limelight.parseJson("{}");
+    private volatile double timestamp = Double.NaN;
+    private final CompletableFuture<Void> firstRequest;
+
+    /**
+     * @param name the name of the report, used for the refresh thread
+     * @param request sends the request for the raw report, completing with null on failure (including
+     *        responses other than 200)
+     * @param ttl how long (seconds) a report is considered fresh
+     */
+    CachedReport(String name, Supplier<CompletableFuture<String>> request, double ttl) {
+        this.request = request;
+        this.ttl = ttl;
+
+        // sent before the notifier starts, so it can't find another request in flight
+        firstRequest = send();
+
+        notifier = new Notifier(this::refresh);
+        notifier.setName(name);
+        // refresh twice per ttl, so a single slow or failed request does not make the report stale
+        notifier.startPeriodic(ttl / 2);
+    }
+
+    /**
+     * Requests a new report, unless one is already on the way
+     */
+    public void refresh() {
+        send();
+    }
+
+    /**
+     * @return a future that completes once the request is handled, already complete if another
+     *         request was in flight or the request could not be sent
+     */
+    private CompletableFuture<Void> send() {
+        if (!inFlight.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<String> pending;
+        try {
+            pending = request.get();
+        } catch (RuntimeException e) {
+            System.err.println("Unable to request limelight report: " + e.getMessage());
+            inFlight.set(false);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return pending.handle((raw, error) -> {
+            try {
+                if (error == null && raw != null) {
+                    JsonNode parsed = Limelight.parseJson(raw);
+                    if (parsed != null) {
+                        report = parsed;
+                        timestamp = Timer.getFPGATimestamp();
+                    }
+                }
+            } finally {
+                inFlight.set(false);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return the last good report, an empty object if none has been received
+     */
+    public JsonNode get() {
+        return report;
+    }
+
+    /**
+     * Same as {@link #get()}, but waits for the first request to complete (or time out) if it hasn't
+     * yet, so a caller that used to block on the request still gets a report on its first call
+     *
+     * @return the last good report, an empty object if the first request failed and none has been
+     *         received since
+     */
+    public JsonNode getOrWait() {
+        firstRequest.join();
+        return report;
+    }
+
+    /**
+     * @return the FPGA timestamp the report was received at (seconds), NaN if none has been received
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return how long ago (seconds) the report was received, infinite if none has been received
+     */
+    public double getAge() {
+        return Double.isNaN(timestamp) ? Double.POSITIVE_INFINITY : Timer.getFPGATimestamp() - timestamp;
+    }
+
+    /**
+     * @return whether the report is older than its time to live (or missing)
+     */
+    public boolean isStale() {
+        return getAge() > ttl;
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+    }
+}
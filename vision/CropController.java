@@ -0,0 +1,217 @@
+package frc.thunder.vision;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Drives a limelight's crop window to follow the tracked target. The fewer pixels the pipeline has
+ * to process, the higher the frame rate, so the crop is kept just around where the target will be
+ * on the next frame: its last position, moved by its recent motion across the image and by the
+ * robot turning. When the target is lost the crop widens each loop until it is back to the full
+ * image.
+ *
+ * The pipeline must utilize the default crop rectangle in the web interface, see
+ * {@link Limelight#setCropSize(double, double, double, double)}.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * cropController = new CropController(limelight, () -&gt; -gyro.getRate());
+ *
+ * // in periodic
+ * cropController.update();
+ * </pre>
+ */
+public class CropController {
+    /** Limelight 3 field of view (degrees), used to map tx/ty to crop coordinates */
+    private static final double HORIZONTAL_FOV = 62.5;
+    private static final double VERTICAL_FOV = 48.9;
+
+    /** Smallest crop half size (crop units, the full image is -1 to 1) */
+    private static final double MIN_HALF_SIZE = 0.15;
+
+    /** How much bigger than the target the crop is */
+    private static final double TARGET_MARGIN = 2.0;
+
+    /** How much the crop grows per loop while the target is lost */
+    private static final double LOSS_GROWTH = 1.5;
+
+    /** Crop changes smaller than this are not pushed (crop units) */
+    private static final double PUSH_RESOLUTION = 0.02;
+
+    private final Limelight limelight;
+    private final DoubleSupplier yawRate;
+
+    private boolean enabled = true;
+
+    private double lastHeartbeat = Double.NaN;
+    private double lastFrameTime = Double.NaN;
+    private double lastTx = 0;
+    private double lastTy = 0;
+    private double framePeriod = 0.02;
+
+    // target motion across the image with the robot's turning removed (degrees per second)
+    private double txRate = 0;
+    private double tyRate = 0;
+    private boolean tracking = false;
+
+    private double centerX = 0;
+    private double centerY = 0;
+    private double halfWidth = 1;
+    private double halfHeight = 1;
+
+    private final double[] pushed = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+
+    /**
+     * @param limelight the limelight to crop
+     * @param yawRate the robot's yaw rate (degrees per second, counterclockwise positive)
+     */
+    public CropController(Limelight limelight, DoubleSupplier yawRate) {
+        this.limelight = limelight;
+        this.yawRate = yawRate;
+    }
+
+    /**
+     * Predict where the target will be and push the crop if it moved, call once per loop
+     */
+    public void update() {
+        if (!enabled) {
+            return;
+        }
+
+        double heartbeat = limelight.getHeartbeat();
+        double now = Timer.getFPGATimestamp();
+        double turnRate = yawRate.getAsDouble();
+
+        if (heartbeat != lastHeartbeat) {
+            // new frame since last loop
+            if (!Double.isNaN(lastFrameTime)) {
+                framePeriod = Math.max(0.005, now - lastFrameTime);
+            }
+            lastHeartbeat = heartbeat;
+            lastFrameTime = now;
+
+            if (limelight.hasTarget()) {
+                double tx = limelight.getTargetX();
+                double ty = limelight.getTargetY();
+
+                if (tracking) {
+                    // turning counterclockwise sweeps the target right (+tx), keep only what the
+                    // target itself did so the current turn rate can be added back when predicting
+                    txRate = (tx - lastTx) / framePeriod - turnRate;
+                    tyRate = (ty - lastTy) / framePeriod;
+                } else {
+                    txRate = 0;
+                    tyRate = 0;
+                }
+
+                lastTx = tx;
+                lastTy = ty;
+                tracking = true;
+                track(limelight.getTargetArea(), turnRate);
+            } else {
+                tracking = false;
+                widen();
+            }
+        } else if (!tracking) {
+            widen();
+        }
+
+        push();
+    }
+
+    /**
+     * Centre the crop on the predicted target position, sized by the target and how fast it moves
+     */
+    private void track(double area, double turnRate) {
+        // from this frame's capture until the next frame is processed
+        double lookahead = limelight.getTotalLatency() / 1000d + framePeriod;
+        double predictedTx = lastTx + (txRate + turnRate) * lookahead;
+        double predictedTy = lastTy + tyRate * lookahead;
+
+        centerX = predictedTx / (HORIZONTAL_FOV / 2);
+        centerY = predictedTy / (VERTICAL_FOV / 2);
+
+        // ta is percent of the image, so its square root is the target's size as a fraction of the
+        // image, which is also its half size in crop units
+        double size = Math.sqrt(Math.max(area, 0) / 100);
+        double motionX = Math.abs((txRate + turnRate) * lookahead) / (HORIZONTAL_FOV / 2);
+        double motionY = Math.abs(tyRate * lookahead) / (VERTICAL_FOV / 2);
+        halfWidth = Math.max(MIN_HALF_SIZE, size * TARGET_MARGIN + motionX);
+        halfHeight = Math.max(MIN_HALF_SIZE, size * TARGET_MARGIN + motionY);
+    }
+
+    /**
+     * Grow the crop around its last centre, back towards the full image
+     */
+    private void widen() {
+        halfWidth = Math.min(2, halfWidth * LOSS_GROWTH);
+        halfHeight = Math.min(2, halfHeight * LOSS_GROWTH);
+        if (halfWidth >= 2 && halfHeight >= 2) {
+            centerX = 0;
+            centerY = 0;
+        }
+    }
+
+    /**
+     * Send the crop to the limelight, only if it changed enough to matter
+     */
+    private void push() {
+        double xMin = clamp(centerX - halfWidth);
+        double xMax = clamp(centerX + halfWidth);
+        double yMin = clamp(centerY - halfHeight);
+        double yMax = clamp(centerY + halfHeight);
+
+        if (Math.abs(xMin - pushed[0]) < PUSH_RESOLUTION && Math.abs(yMin - pushed[1]) < PUSH_RESOLUTION
+                && Math.abs(xMax - pushed[2]) < PUSH_RESOLUTION && Math.abs(yMax - pushed[3]) < PUSH_RESOLUTION) {
+            return;
+        }
+
+        pushed[0] = xMin;
+        pushed[1] = yMin;
+        pushed[2] = xMax;
+        pushed[3] = yMax;
+        limelight.setCropSize(xMin, yMin, xMax, yMax);
+    }
+
+    private static double clamp(double value) {
+        return Math.max(-1, Math.min(1, value));
+    }
+
+    /**
+     * @param enabled whether to drive the crop, disabling resets it to the full image
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            reset();
+        }
+    }
+
+    /**
+     * Reset the crop to the full image and forget the target
+     */
+    public void reset() {
+        tracking = false;
+        centerX = 0;
+        centerY = 0;
+        halfWidth = 2;
+        halfHeight = 2;
+        push();
+    }
+
+    /**
+     * @return whether the target was in the last frame
+     */
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * @return the last crop pushed as xMin, yMin, xMax, yMax (crop units), owned by the controller
+     */
+    public double[] getCrop() {
+        return pushed;
+    }
+}
@@ -0,0 +1,336 @@
+package frc.thunder.vision;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.thunder.util.ClockOffsetEstimator;
+
+/**
+ * Follows neural detections from frame to frame, so game piece commands can chase one stable
+ * target instead of jumping between whatever the detector reports first. Each new frame the
+ * existing tracks are moved forward by their velocity, matched to the nearest detection of the
+ * same class (closest pairs first), and smoothed with an alpha-beta filter. Tracks that miss a few
+ * frames coast on their velocity until they time out, and unmatched detections start new tracks
+ * with new IDs.
+ *
+ * Everything is held in fixed-capacity arrays indexed by slot, so an update never allocates.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * tracker = new DetectionTracker(limelight.getRawDetections());
+ *
+ * // in periodic
+ * tracker.update();
+ * int slot = tracker.getLargest(NOTE_CLASS);
+ * if (slot &gt;= 0) {
+ *     turnTowards(tracker.getTx(slot));
+ * }
+ * </pre>
+ */
+public class DetectionTracker {
+    /** Most tracks followed at once */
+    public static final int MAX_TRACKS = 8;
+
+    /** Furthest (degrees) a detection can be from a track's prediction and still match it */
+    private static final double DEFAULT_GATE = 8;
+
+    /** How long (seconds) a track coasts without a detection before it is dropped */
+    private static final double DEFAULT_MAX_COAST = 0.5;
+
+    /** Matched frames before a track is trusted */
+    private static final int CONFIRM_HITS = 3;
+
+    /** Alpha-beta gains, position and velocity */
+    private static final double ALPHA = 0.6;
+    private static final double BETA = 0.2;
+
+    private final RawDetections detections;
+
+    private final boolean[] active = new boolean[MAX_TRACKS];
+    private final int[] trackId = new int[MAX_TRACKS];
+    private final int[] classId = new int[MAX_TRACKS];
+    private final double[] tx = new double[MAX_TRACKS];
+    private final double[] ty = new double[MAX_TRACKS];
+    private final double[] txRate = new double[MAX_TRACKS];
+    private final double[] tyRate = new double[MAX_TRACKS];
+    private final double[] area = new double[MAX_TRACKS];
+    private final double[] lastSeen = new double[MAX_TRACKS];
+    private final int[] hits = new int[MAX_TRACKS];
+
+    // scratch for matching, one flag per track and per detection
+    private final boolean[] trackMatched = new boolean[MAX_TRACKS];
+    private final boolean[] detectionMatched = new boolean[RawDetections.MAX_TARGETS];
+
+    private double gate = DEFAULT_GATE;
+    private double maxCoast = DEFAULT_MAX_COAST;
+
+    private long lastChange = -1;
+    private double frameTime = Double.NaN;
+    private int nextId = 1;
+
+    /**
+     * @param detections the detections to track, see {@link Limelight#getRawDetections()}
+     */
+    public DetectionTracker(RawDetections detections) {
+        this.detections = detections;
+    }
+
+    /**
+     * Read the newest detections and update the tracks, does nothing if there is no new frame
+     *
+     * @return whether a new frame was processed
+     */
+    public boolean update() {
+        int count = detections.update();
+        long change = detections.getLastChange();
+        if (change == lastChange) {
+            // no frame at all (the limelight stopped publishing), so tracks also have to time out
+            // between frames
+            expire(Timer.getFPGATimestamp());
+            return false;
+        }
+        lastChange = change;
+
+        double time = ClockOffsetEstimator.toFPGATime(change);
+        double dt = Double.isNaN(frameTime) ? 0 : Math.max(0, time - frameTime);
+        frameTime = time;
+
+        // move every track to where it should be on this frame
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            trackMatched[i] = false;
+            if (active[i]) {
+                tx[i] += txRate[i] * dt;
+                ty[i] += tyRate[i] * dt;
+            }
+        }
+        for (int j = 0; j < count; j++) {
+            detectionMatched[j] = false;
+        }
+
+        // greedy nearest neighbour, the closest remaining pair is matched first
+        while (true) {
+            int bestTrack = -1;
+            int bestDetection = -1;
+            double bestDistance = gate * gate;
+
+            for (int i = 0; i < MAX_TRACKS; i++) {
+                if (!active[i] || trackMatched[i]) {
+                    continue;
+                }
+                for (int j = 0; j < count; j++) {
+                    if (detectionMatched[j] || detections.classId[j] != classId[i]) {
+                        continue;
+                    }
+                    double dx = detections.txnc[j] - tx[i];
+                    double dy = detections.tync[j] - ty[i];
+                    double distance = dx * dx + dy * dy;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        bestTrack = i;
+                        bestDetection = j;
+                    }
+                }
+            }
+
+            if (bestTrack < 0) {
+                break;
+            }
+            trackMatched[bestTrack] = true;
+            detectionMatched[bestDetection] = true;
+            correct(bestTrack, bestDetection, dt, time);
+        }
+
+        expire(time);
+
+        // start tracks for whatever is left, as long as there is room
+        for (int j = 0; j < count; j++) {
+            if (!detectionMatched[j]) {
+                spawn(j, time);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Drop tracks that have coasted too long
+     */
+    private void expire(double time) {
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            if (active[i] && time - lastSeen[i] > maxCoast) {
+                active[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Blend a matched detection into its track
+     */
+    private void correct(int track, int detection, double dt, double time) {
+        double txResidual = detections.txnc[detection] - tx[track];
+        double tyResidual = detections.tync[detection] - ty[track];
+
+        tx[track] += ALPHA * txResidual;
+        ty[track] += ALPHA * tyResidual;
+        if (dt > 0) {
+            txRate[track] += BETA * txResidual / dt;
+            tyRate[track] += BETA * tyResidual / dt;
+        }
+        area[track] = detections.area[detection];
+        lastSeen[track] = time;
+        hits[track]++;
+    }
+
+    /**
+     * Start a new track from a detection in the first free slot
+     */
+    private void spawn(int detection, double time) {
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            if (!active[i]) {
+                active[i] = true;
+                trackId[i] = nextId++;
+                classId[i] = detections.classId[detection];
+                tx[i] = detections.txnc[detection];
+                ty[i] = detections.tync[detection];
+                txRate[i] = 0;
+                tyRate[i] = 0;
+                area[i] = detections.area[detection];
+                lastSeen[i] = time;
+                hits[i] = 1;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param targetClass the class to look for
+     * @return the slot of the largest confirmed track of the class, or -1 if there is none
+     */
+    public int getLargest(int targetClass) {
+        int best = -1;
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            if (isConfirmed(i) && classId[i] == targetClass && (best < 0 || area[i] > area[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param trackID the ID of the track to look for
+     * @return the slot of the track, or -1 if it has been dropped
+     */
+    public int find(int trackID) {
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            if (active[i] && trackId[i] == trackID) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Forget every track
+     */
+    public void reset() {
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            active[i] = false;
+        }
+        frameTime = Double.NaN;
+    }
+
+    /**
+     * @param slot the track slot, 0 to {@link #MAX_TRACKS} - 1
+     * @return whether the slot holds a track
+     */
+    public boolean isActive(int slot) {
+        return active[slot];
+    }
+
+    /**
+     * @param slot the track slot
+     * @return whether the slot holds a track that has been matched enough frames to trust
+     */
+    public boolean isConfirmed(int slot) {
+        return active[slot] && hits[slot] >= CONFIRM_HITS;
+    }
+
+    /**
+     * @param slot the track slot
+     * @return whether the track missed the last frame and is being predicted
+     */
+    public boolean isCoasting(int slot) {
+        return active[slot] && lastSeen[slot] < frameTime;
+    }
+
+    /**
+     * @param slot the track slot
+     * @return the ID of the track, stable for as long as it is followed
+     */
+    public int getId(int slot) {
+        return trackId[slot];
+    }
+
+    /**
+     * @param slot the track slot
+     * @return the class ID of the track
+     */
+    public int getClassId(int slot) {
+        return classId[slot];
+    }
+
+    /**
+     * @param slot the track slot
+     * @return the smoothed horizontal offset of the track on the last frame (degrees)
+     */
+    public double getTx(int slot) {
+        return tx[slot];
+    }
+
+    /**
+     * @param slot the track slot
+     * @return the smoothed vertical offset of the track on the last frame (degrees)
+     */
+    public double getTy(int slot) {
+        return ty[slot];
+    }
+
+    /**
+     * @param slot the track slot
+     * @param time the FPGA time (seconds) to predict at
+     * @return the predicted horizontal offset of the track (degrees)
+     */
+    public double predictTx(int slot, double time) {
+        return tx[slot] + txRate[slot] * (time - frameTime);
+    }
+
+    /**
+     * @param slot the track slot
+     * @param time the FPGA time (seconds) to predict at
+     * @return the predicted vertical offset of the track (degrees)
+     */
+    public double predictTy(int slot, double time) {
+        return ty[slot] + tyRate[slot] * (time - frameTime);
+    }
+
+    /**
+     * @param slot the track slot
+     * @return the area of the track's last detection (0% of image to 100% of image)
+     */
+    public double getArea(int slot) {
+        return area[slot];
+    }
+
+    /**
+     * @param gate the furthest (degrees) a detection can be from a prediction and still match
+     */
+    public void setGate(double gate) {
+        this.gate = gate;
+    }
+
+    /**
+     * @param maxCoast how long (seconds) a track is predicted without a detection
+     */
+    public void setMaxCoast(double maxCoast) {
+        this.maxCoast = maxCoast;
+    }
+}
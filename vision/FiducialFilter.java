@@ -0,0 +1,158 @@
+package frc.thunder.vision;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+
+/**
+ * Limits a limelight to the AprilTags it could plausibly see from where the robot is. Given the
+ * robot's pose and the camera's mounting ({@link Limelight#getCameraPoseRobotSpace()}), every tag
+ * of the layout that is in front of the camera, inside its (padded) field of view, within range,
+ * and facing the camera is kept. The set is pushed with
+ * {@link Limelight#setFiducialIDFiltersOverride(int[])} only when it changes, so the camera
+ * considers fewer tags and has fewer false detections.
+ *
+ * If no tag is plausible (eg the pose estimate is off), every tag is allowed again so the camera
+ * can still relocalize.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * fiducialFilter = new FiducialFilter(limelight, layout);
+ *
+ * // in periodic
+ * fiducialFilter.update(drivetrain.getPose());
+ * </pre>
+ */
+public class FiducialFilter {
+    /** Limelight 3 field of view (degrees) */
+    private static final double HORIZONTAL_FOV = 62.5;
+    private static final double VERTICAL_FOV = 48.9;
+
+    /** Extra field of view (degrees) on each side, covers pose error and keeps edge tags steady */
+    private static final double DEFAULT_FOV_MARGIN = 10;
+
+    /** Furthest (meters) a tag is considered visible from */
+    private static final double DEFAULT_MAX_DISTANCE = 7;
+
+    private final Limelight limelight;
+    private final List<AprilTag> tags;
+    private final int[] allIDs;
+
+    private final int[] visible;
+    private int[] pushed = null;
+
+    private Transform3d robotToCamera = null;
+    private double fovMargin = DEFAULT_FOV_MARGIN;
+    private double maxDistance = DEFAULT_MAX_DISTANCE;
+
+    /**
+     * @param limelight the limelight to filter
+     * @param layout the tags on the field
+     */
+    public FiducialFilter(Limelight limelight, AprilTagFieldLayout layout) {
+        this.limelight = limelight;
+        this.tags = layout.getTags();
+
+        allIDs = new int[tags.size()];
+        for (int i = 0; i < allIDs.length; i++) {
+            allIDs[i] = tags.get(i).ID;
+        }
+        Arrays.sort(allIDs);
+        visible = new int[allIDs.length];
+    }
+
+    /**
+     * Work out which tags are plausible from the robot's pose, and push them if the set changed
+     *
+     * @param robotPose the robot's blue alliance pose
+     * @return whether a new filter was pushed
+     */
+    public boolean update(Pose2d robotPose) {
+        if (robotToCamera == null) {
+            Pose3d cameraPose = limelight.getCameraPoseRobotSpace();
+            if (cameraPose == null) {
+                return false;
+            }
+            robotToCamera = new Transform3d(cameraPose.getTranslation(), cameraPose.getRotation());
+        }
+
+        Pose3d camera = new Pose3d(robotPose).transformBy(robotToCamera);
+        double maxYaw = HORIZONTAL_FOV / 2 + fovMargin;
+        double maxPitch = VERTICAL_FOV / 2 + fovMargin;
+
+        int count = 0;
+        for (AprilTag tag : tags) {
+            Pose3d relative = tag.pose.relativeTo(camera);
+            double forward = relative.getX();
+            if (forward <= 0 || relative.getTranslation().getNorm() > maxDistance) {
+                continue;
+            }
+            if (Math.abs(Math.toDegrees(Math.atan2(relative.getY(), forward))) > maxYaw
+                    || Math.abs(Math.toDegrees(Math.atan2(relative.getZ(), forward))) > maxPitch) {
+                continue;
+            }
+            // a tag's +X points out of its face, so the camera has to be on that side
+            if (camera.relativeTo(tag.pose).getX() <= 0) {
+                continue;
+            }
+            visible[count++] = tag.ID;
+        }
+
+        Arrays.sort(visible, 0, count);
+        int[] filter = count == 0 ? allIDs : visible;
+        if (count == 0) {
+            count = allIDs.length;
+        }
+        if (pushed != null && Arrays.equals(filter, 0, count, pushed, 0, pushed.length)) {
+            return false;
+        }
+
+        pushed = filter == allIDs ? allIDs : Arrays.copyOf(visible, count);
+        limelight.setFiducialIDFiltersOverride(pushed);
+        return true;
+    }
+
+    /**
+     * Use a known camera mounting instead of reading it from the limelight
+     *
+     * @param robotToCamera the camera's position on the robot
+     */
+    public void setRobotToCamera(Transform3d robotToCamera) {
+        this.robotToCamera = robotToCamera;
+    }
+
+    /**
+     * @param margin extra field of view (degrees) on each side of the camera's
+     */
+    public void setFOVMargin(double margin) {
+        fovMargin = margin;
+    }
+
+    /**
+     * @param distance the furthest (meters) a tag is considered visible from
+     */
+    public void setMaxDistance(double distance) {
+        maxDistance = distance;
+    }
+
+    /**
+     * Allow every tag again, eg when the pose estimate can't be trusted
+     */
+    public void reset() {
+        pushed = allIDs;
+        limelight.setFiducialIDFiltersOverride(allIDs);
+    }
+
+    /**
+     * @return the IDs last pushed to the limelight, null if nothing has been pushed
+     */
+    public int[] getFilter() {
+        return pushed;
+    }
+}
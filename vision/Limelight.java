@@ -1,17 +1,18 @@
 package frc.thunder.vision;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
-import java.net.SocketException;
+import java.net.URI;
 import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.function.Supplier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -20,11 +21,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.wpi.first.math.Pair;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.networktables.DoubleArrayEntry;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringSubscriber;
 import edu.wpi.first.networktables.TimestampedDoubleArray;
+import frc.thunder.util.ClockOffsetEstimator;
 import frc.thunder.util.Pose4d;
 import frc.thunder.util.PoseConverter;
+import frc.thunder.util.PoseMeasurement;
 
 public class Limelight {
     private NetworkTable table;
@@ -35,6 +42,30 @@ public class Limelight {
     private final long ntDefaultInt = 0;
     private final String ntDefaultString = "";
     private final double[] ntDefaultArray = {};
+    private LimelightSnapshot snapshot = null;
+
+    // parsing is thread safe, so every limelight shares one mapper
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private double reportTTL = 5.0;
+    private CachedReport hwReportCache = null;
+    private CachedReport snapshotNamesCache = null;
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(3);
+
+    // shared by every limelight: a small fixed pool for the http work, and one client that keeps
+    // connections alive between requests
+    private static final ExecutorService httpExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "Limelight HTTP");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(httpExecutor)
+            .build();
 
     /**
      * Create a new Limelight object with the specified name and ip
@@ -43,8 +74,20 @@ public class Limelight {
      * @param ip the ip of the limelight (no slashes or http://)
      */
     public Limelight(String name, String ip) {
+        this(name, ip, NetworkTableInstance.getDefault());
+    }
+
+    /**
+     * Create a new Limelight object on a specific NT instance (eg a local one with a
+     * {@link SimLimelight} for tests)
+     * 
+     * @param name the name of the limelight used in network tables
+     * @param ip the ip of the limelight (no slashes or http://)
+     * @param instance the NT instance the limelight publishes to
+     */
+    public Limelight(String name, String ip, NetworkTableInstance instance) {
         this.name = name;
-        this.table = NetworkTableInstance.getDefault().getTable(name);
+        this.table = instance.getTable(name);
         this.ip = ip;
         try {
             this.baseUrl = new URL("http://" + ip);
@@ -68,6 +111,41 @@ public class Limelight {
         this(name, "10.8.62.11");
     }
 
+    /**
+     * Switch this limelight to snapshot mode: every key is subscribed once, and the getters read
+     * from a frame-consistent snapshot instead of looking up NT entries on each call. The snapshot
+     * only changes when {@link #update()} is called, so call it once per loop (eg in periodic)
+     * before using any getters.
+     *
+     * @return the snapshot the getters read from
+     */
+    public LimelightSnapshot enableSnapshot() {
+        if (snapshot == null) {
+            snapshot = new LimelightSnapshot(table);
+            snapshot.update();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the snapshot the getters read from, or null if snapshot mode is not enabled
+     * @see #enableSnapshot()
+     */
+    public LimelightSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Capture a new snapshot of every value. Does nothing unless snapshot mode is enabled.
+     *
+     * @see #enableSnapshot()
+     */
+    public void update() {
+        if (snapshot != null) {
+            snapshot.update();
+        }
+    }
+
     /**
      * get a double from network tables with the specified key
      * 
@@ -128,11 +206,18 @@ public class Limelight {
         table.getEntry(key).setDoubleArray(value);
     }
 
+    /**
+     * @return the heartbeat, which the limelight increments once per frame
+     */
+    public double getHeartbeat() {
+        return snapshot != null ? snapshot.getHeartbeat() : getDoubleNT("hb");
+    }
+
     /**
      * @return Whether the limelight has any valid targets
      */
     public boolean hasTarget() {
-        return getDoubleNT("tv") == 1.0;
+        return snapshot != null ? snapshot.hasTarget() : getDoubleNT("tv") == 1.0;
     }
 
     /**
@@ -141,7 +226,7 @@ public class Limelight {
      * @return (LL1: -27 degrees to 27 degrees | LL2: -29.8 to 29.8 degrees | LL3: -30 to 30 degrees)
      */
     public double getTargetX() {
-        return getDoubleNT("tx");
+        return snapshot != null ? snapshot.getTargetX() : getDoubleNT("tx");
     }
 
     /**
@@ -150,14 +235,14 @@ public class Limelight {
      * @return (LL1: -20.5 degrees to 20.5 degrees | LL2: -24.85 to 24.85 degrees | -24 to 24 degrees)
      */
     public double getTargetY() {
-        return getDoubleNT("ty");
+        return snapshot != null ? snapshot.getTargetY() : getDoubleNT("ty");
     }
 
     /**
      * @return Target Area (0% of image to 100% of image)
      */
     public double getTargetArea() {
-        return getDoubleNT("ta");
+        return snapshot != null ? snapshot.getTargetArea() : getDoubleNT("ta");
     }
 
     /**
@@ -171,14 +256,14 @@ public class Limelight {
      * @return The pipeline’s latency contribution (ms)
      */
     public double getPipelineLatency() {
-        return getDoubleNT("tl");
+        return snapshot != null ? snapshot.getPipelineLatency() : getDoubleNT("tl");
     }
 
     /**
      * @return Capture pipeline latency (ms). Time between the end of the exposure of the middle row of the sensor to the beginning of the tracking pipeline.
      */
     public double getCaptureLatency() {
-        return getDoubleNT("cl");
+        return snapshot != null ? snapshot.getCaptureLatency() : getDoubleNT("cl");
     }
 
     /**
@@ -192,49 +277,67 @@ public class Limelight {
      * @return Sidelength of shortest side of the fitted bounding box (pixels)
      */
     public double getTShort() {
-        return getDoubleNT("tshort");
+        return snapshot != null ? snapshot.getTShort() : getDoubleNT("tshort");
     }
 
     /**
      * @return Sidelength of longest side of the fitted bounding box (pixels)
      */
     public double getTLong() {
-        return getDoubleNT("tlong");
+        return snapshot != null ? snapshot.getTLong() : getDoubleNT("tlong");
     }
 
     /**
      * @return Horizontal sidelength of the rough bounding box (0 - 320 pixels)
      */
     public double getTHor() {
-        return getDoubleNT("thor");
+        return snapshot != null ? snapshot.getTHor() : getDoubleNT("thor");
     }
 
     /**
      * @return Vertical sidelength of the rough bounding box (0 - 320 pixels)
      */
     public double getTVert() {
-        return getDoubleNT("tvert");
+        return snapshot != null ? snapshot.getTVert() : getDoubleNT("tvert");
     }
 
-    // /**
-    //  * @return Full JSON dump of targeting results
-    //  */
-    // public TargetingResult getTargetJSON() {
-    //     return new TargetingResult(parseJson(getStringNT("json")));
-    // }
+    private StringSubscriber jsonSub = null;
+    private LimelightJsonParser jsonParser = null;
+    private LimelightResults jsonResults = null;
+    private long jsonChange = -1;
+
+    /**
+     * The dump is only decoded again when it changes, into a small pool of reused results, so the
+     * returned results stay valid for at least one more frame.
+     * 
+     * @return Full JSON dump of targeting results
+     */
+    public LimelightResults getTargetJSON() {
+        if (jsonSub == null) {
+            jsonSub = table.getStringTopic("json").subscribe(ntDefaultString);
+            jsonParser = new LimelightJsonParser();
+        }
+
+        long change = jsonSub.getLastChange();
+        if (jsonResults == null || change != jsonChange) {
+            jsonChange = change;
+            jsonResults = jsonParser.parse(jsonSub.get());
+        }
+        return jsonResults;
+    }
 
     /**
      * @return Class ID of primary neural detector result or neural classifier result
      */
     public String getNeuralClassID() {
-        return getStringNT("tclass");
+        return snapshot != null ? snapshot.getNeuralClassID() : getStringNT("tclass");
     }
 
     /**
      * @return Get the average HSV color underneath the crosshair region as a NumberArray
      */
     public double[] getAverageHSV() {
-        return getArrayNT("tc");
+        return snapshot != null ? snapshot.getAverageHSV() : getArrayNT("tc");
     }
 
     DoubleArrayEntry poseEntry = null;
@@ -261,49 +364,126 @@ public class Limelight {
      * @return Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw), total latency (cl+tl)
      */
     public Pose4d getBlueAlliancePose() {
+        if (snapshot != null) {
+            double[] rawPose = snapshot.getBotPoseBlue();
+            if (rawPose.length >= 10) {
+                return new Pose4d(rawPose, ClockOffsetEstimator.toFPGATime(snapshot.getBotPoseBlueTimestamp()));
+            }
+            return new Pose4d();
+        }
+
         var entry = getBluePoseEntry();
         if (entry != null) {
             TimestampedDoubleArray rawPose = entry.getAtomic();
             if (rawPose.value.length >= 10) {
-                return new Pose4d(rawPose.value, rawPose.timestamp / 1.0e6);
+                return new Pose4d(rawPose.value, ClockOffsetEstimator.toFPGATime(rawPose.timestamp));
             }
         }
         return new Pose4d();
     }
 
+    /**
+     * Decode the newest blue alliance pose into an existing measurement, so nothing is built
+     * unless the caller converts it to WPILib types.
+     *
+     * @param out the measurement to decode into, cleared if there is no pose
+     * @return whether the limelight published a pose
+     * @see Limelight#getBlueAlliancePose()
+     */
+    public boolean getBlueAlliancePose(PoseMeasurement out) {
+        if (snapshot != null) {
+            return PoseConverter.toPoseMeasurement(snapshot.getBotPoseBlue(), ClockOffsetEstimator.toFPGATime(snapshot.getBotPoseBlueTimestamp()), out);
+        }
+
+        TimestampedDoubleArray rawPose = getBluePoseEntry().getAtomic();
+        return PoseConverter.toPoseMeasurement(rawPose.value, ClockOffsetEstimator.toFPGATime(rawPose.timestamp), out);
+    }
+
+    private PoseFrameQueue bluePoseQueue = null;
+
+    /**
+     * Unlike {@link #getBlueAlliancePose()}, which only sees the newest frame, the queue holds
+     * every blue alliance pose received since it was last drained.
+     *
+     * @return the queue of blue alliance poses, created on first use
+     */
+    public PoseFrameQueue getBluePoseQueue() {
+        if (bluePoseQueue == null) {
+            bluePoseQueue = new PoseFrameQueue(table, "botpose_wpiblue", PoseFrameQueue.DEFAULT_DEPTH);
+        }
+        return bluePoseQueue;
+    }
+
+    private LimelightHealth health = null;
+
+    /**
+     * @return the stream health of this limelight, created (and published) on first use
+     */
+    public LimelightHealth getHealth() {
+        if (health == null) {
+            health = new LimelightHealth(table, name);
+        }
+        return health;
+    }
+
+    private RawFiducials rawFiducials = null;
+    private RawDetections rawDetections = null;
+
+    /**
+     * @return every AprilTag in view as flat columns, created on first use, call
+     *         {@link RawFiducials#update()} before reading
+     */
+    public RawFiducials getRawFiducials() {
+        if (rawFiducials == null) {
+            rawFiducials = new RawFiducials(table);
+        }
+        return rawFiducials;
+    }
+
+    /**
+     * @return every neural detector result in view as flat columns, created on first use, call
+     *         {@link RawDetections#update()} before reading
+     */
+    public RawDetections getRawDetections() {
+        if (rawDetections == null) {
+            rawDetections = new RawDetections(table);
+        }
+        return rawDetections;
+    }
+
     /**
      * @return 3D transform of the camera in the coordinate system of the primary in-view AprilTag
      */
     public Pose3d getCamPoseTargetSpace() {
-        return PoseConverter.toPose3d(getArrayNT("camerapose_targetspace"));
+        return PoseConverter.toPose3d(snapshot != null ? snapshot.getCamPoseTargetSpace() : getArrayNT("camerapose_targetspace"));
     }
 
     /**
      * @return 3D transform of the camera in the coordinate system of the Robot
      */
     public Pose3d getCamPoseRobotSpace() {
-        return PoseConverter.toPose3d(getArrayNT("camerapose_robotspace"));
+        return PoseConverter.toPose3d(snapshot != null ? snapshot.getCamPoseRobotSpace() : getArrayNT("camerapose_robotspace"));
     }
 
     /**
      * @return 3D transform of the primary in-view AprilTag in the coordinate system of the Camera
      */
     public Pose3d getTargetPoseCameraSpace() {
-        return PoseConverter.toPose3d(getArrayNT("targetpose_cameraspace"));
+        return PoseConverter.toPose3d(snapshot != null ? snapshot.getTargetPoseCameraSpace() : getArrayNT("targetpose_cameraspace"));
     }
 
     /**
      * @return 3D transform of the primary in-view AprilTag in the coordinate system of the Robot
      */
     public Pose3d getTargetPoseRobotSpace() {
-        return PoseConverter.toPose3d(getArrayNT("targetpose_robotspace"));
+        return PoseConverter.toPose3d(snapshot != null ? snapshot.getTargetPoseRobotSpace() : getArrayNT("targetpose_robotspace"));
     }
 
     /**
      * @return ID of the primary in-view apriltag
      */
     public int getApriltagID() {
-        return getIntNT("tid");
+        return snapshot != null ? snapshot.getApriltagID() : getIntNT("tid");
     }
 
     public enum LEDMode {
@@ -396,18 +576,64 @@ public class Limelight {
         return StreamMode.values()[getIntNT("stream")];
     }
 
+    /** How long (seconds) a pipeline switch may take before its future times out */
+    public static final double PIPELINE_SWITCH_TIMEOUT = 1.0;
+
+    private DoubleSubscriber getpipeSub = null;
+
     /**
      * Sets limelight’s current pipeline
+     * 
+     * @param pipeline the pipeline to switch to (0-9)
+     * @return a future that completes with the pipeline on the first frame the limelight reports it,
+     *         or fails with a TimeoutException after {@link #PIPELINE_SWITCH_TIMEOUT}
+     * @see Limelight#setPipeline(int, double)
      */
-    public void setPipeline(int pipeline) {
+    public CompletableFuture<Integer> setPipeline(int pipeline) {
+        return setPipeline(pipeline, PIPELINE_SWITCH_TIMEOUT);
+    }
+
+    /**
+     * Sets limelight’s current pipeline. The future is completed by an NT listener on getpipe, so
+     * its callbacks run on the NT listener thread; keep them short, or check
+     * {@link CompletableFuture#isDone()} from periodic instead.
+     * 
+     * @param pipeline the pipeline to switch to (0-9)
+     * @param timeout how long (seconds) to wait for the switch
+     * @return a future that completes with the pipeline on the first frame the limelight reports it,
+     *         or fails with a TimeoutException after the timeout
+     */
+    public CompletableFuture<Integer> setPipeline(int pipeline, double timeout) {
+        if (getpipeSub == null) {
+            getpipeSub = table.getDoubleTopic("getpipe").subscribe(-1);
+        }
+
+        CompletableFuture<Integer> switched = new CompletableFuture<Integer>();
+        NetworkTableInstance instance = table.getInstance();
+        int listener = instance.addListener(getpipeSub, EnumSet.of(NetworkTableEvent.Kind.kValueAll), event -> {
+            if (event.valueData != null && event.valueData.value.isDouble()
+                    && (int) event.valueData.value.getDouble() == pipeline) {
+                switched.complete(pipeline);
+            }
+        });
+        switched.orTimeout((long) (timeout * 1000), TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> instance.removeListener(listener));
+
         setNumNT("pipeline", pipeline);
+
+        // already on the pipeline, so no new frame is needed
+        if ((int) getpipeSub.get() == pipeline) {
+            switched.complete(pipeline);
+        }
+        return switched;
     }
 
     /**
-     * @return the current pipeline (0-9)
+     * @return the current pipeline (0-9), in snapshot mode the pipeline the limelight reported for
+     *         the snapshot's loop (getpipe)
      */
     public int getPipeline() {
-        return getIntNT("pipeline");
+        return snapshot != null ? snapshot.getPipeline() : getIntNT("pipeline");
     }
 
     /**
@@ -470,44 +696,48 @@ public class Limelight {
     }
 
     /**
-     * generic http request to the limelight
+     * generic http request to the limelight, sent on the shared client without blocking the caller
      * 
      * @param suffix the suffix to add to the base url (eg "deletesnapshots", "capturesnapshot")
      * @param type the type of request to send (eg "GET", "POST")
      * @param headers the headers to send with the request
-     * @return the response message from the limelight Errors are printed to stderr, and a null value is returned
+     * @return a future of the response message from the limelight Errors are printed to stderr, and the future completes with null
      */
-    private String httpRequest(String suffix, String type, ArrayList<Pair<String, String>> headers) {
-        try {
-            URL url = generateURL(suffix);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod(type);
-            int responseCode = connection.getResponseCode();
-            for (Pair<String, String> header : headers) {
-                connection.setRequestProperty(header.getFirst(), header.getSecond());
-            }
-            if (responseCode != 200) {
-                System.err.println("Bad HTTP Request to Limelight: " + responseCode + " " + connection.getResponseMessage());
-            }
-
-            // Read the response content as a String
-            StringBuilder content = new StringBuilder();
-            InputStream inputStream = connection.getInputStream();
-            InputStreamReader reader = new InputStreamReader(inputStream);
-            BufferedReader bufferedReader = new BufferedReader(reader);
-            String line;
+    private CompletableFuture<String> httpRequest(String suffix, String type, ArrayList<Pair<String, String>> headers) {
+        return httpRequest(suffix, type, headers, false);
+    }
 
-            while ((line = bufferedReader.readLine()) != null) {
-                content.append(line);
-            }
-            return content.toString();
-        } catch (SocketException e) {
-            return null;
-        } catch (IOException e) {
-            // e.printStackTrace();
-            System.err.println("Limelight brokey: " + e.getMessage());
-            return null;
+    /**
+     * generic http request to the limelight, sent on the shared client without blocking the caller
+     * 
+     * @param suffix the suffix to add to the base url (eg "deletesnapshots", "capturesnapshot")
+     * @param type the type of request to send (eg "GET", "POST")
+     * @param headers the headers to send with the request
+     * @param requireOk whether a response other than 200 completes the future with null instead of its body
+     * @return a future of the response message from the limelight Errors are printed to stderr, and the future completes with null
+     */
+    private CompletableFuture<String> httpRequest(String suffix, String type, ArrayList<Pair<String, String>> headers, boolean requireOk) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(generateURL(suffix).toString()))
+                .timeout(REQUEST_TIMEOUT)
+                .method(type, HttpRequest.BodyPublishers.noBody());
+        for (Pair<String, String> header : headers) {
+            request.header(header.getFirst(), header.getSecond());
         }
+
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        System.err.println("Limelight brokey: " + error.getMessage());
+                        return null;
+                    }
+                    if (response.statusCode() != 200) {
+                        System.err.println("Bad HTTP Request to Limelight: " + response.statusCode());
+                        if (requireOk) {
+                            return null;
+                        }
+                    }
+                    return response.body();
+                });
     }
 
     /**
@@ -515,9 +745,9 @@ public class Limelight {
      * 
      * @param suffix the suffix to add to the base url (eg "deletesnapshots", "capturesnapshot")
      * @param headers the headers to send with the request
-     * @return the response message from the limelight Errors are printed to stderr, and a null value is returned
+     * @return a future of the response message from the limelight Errors are printed to stderr, and the future completes with null
      */
-    private String getRequest(String suffix, ArrayList<Pair<String, String>> headers) {
+    private CompletableFuture<String> getRequest(String suffix, ArrayList<Pair<String, String>> headers) {
         return httpRequest(suffix, "GET", headers);
     }
 
@@ -525,94 +755,118 @@ public class Limelight {
      * send a GET request to the limelight with the specified suffix, with no headers
      * 
      * @param suffix the suffix to add to the base url (eg "deletesnapshots", "capturesnapshot")
-     * @return the response message from the limelight Errors are printed to stderr, and a null value is returned
+     * @return a future of the response message from the limelight Errors are printed to stderr, and the future completes with null
      */
-    private String getRequest(String suffix) {
+    private CompletableFuture<String> getRequest(String suffix) {
         return getRequest(suffix, new ArrayList<Pair<String, String>>());
     }
 
-    /**
-     * @param supplier the function to run asynchronously
-     * @return the result of the function Errors are printed to stderr, and a null value is returned
-     */
-    private String async(Supplier<Object> supplier) {
-        try {
-            return (String) CompletableFuture.supplyAsync(supplier).get();
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
-
     /**
      * Take exactly one snapshot with the current limelight settings. Limited to 2 snapshots per second.
      * 
      * @param name the name of the snapshot
+     * @return a future that completes when the limelight responds
      */
-    public void takeSnapshot(String name) {
+    public CompletableFuture<String> takeSnapshot(String name) {
         ArrayList<Pair<String, String>> headers = new ArrayList<Pair<String, String>>();
         headers.add(new Pair<String, String>("snapname", name));
-        async(() -> {
-            getRequest("capturesnapshot", headers);
-            return null;
-        });
+        return getRequest("capturesnapshot", headers);
     }
 
     /**
      * Take exactly one snapshot with the current limelight settings with default naming (name defaults to snap)
      * 
-     * @see Limelight#SynchronousSnapshot(String)
+     * @return a future that completes when the limelight responds
+     * @see Limelight#takeSnapshot(String)
      */
-    public void takeSnapshot() {
-        async(() -> {
-            getRequest("capturesnapshot");
-            return null;
-        });
+    public CompletableFuture<String> takeSnapshot() {
+        return getRequest("capturesnapshot");
+    }
+
+    /**
+     * Return a list of filenames of all snapshots on the limelight, without blocking
+     * 
+     * @return a future of the snapshot manifest, an empty object if the request fails
+     */
+    public CompletableFuture<JsonNode> getSnapshotNamesAsync() {
+        // Return empty object if rawReport is null
+        return getRequest("snapshotmanifest").thenApply(rawReport -> parseJson(rawReport == null ? "{}" : rawReport));
     }
 
     /**
      * Return a list of filenames of all snapshots on the limelight
      * 
-     * @return
+     * @return the last snapshot manifest received by the background refresh, an empty object if none has been received
+     * @implNote the first call blocks until the first request completes or times out, later calls return at once
+     * @see #getSnapshotNamesCache()
      */
     public JsonNode getSnapshotNames() {
-        String rawReport = async(() -> getRequest("snapshotmanifest"));
-        // Return empty object if rawReport is null
-        if (rawReport == null)
-            return parseJson("{}");
-        return parseJson(rawReport);
+        return getSnapshotNamesCache().getOrWait();
+    }
+
+    /**
+     * @return the snapshot manifest cache, refreshed in the background and started on first use
+     */
+    public CachedReport getSnapshotNamesCache() {
+        if (snapshotNamesCache == null) {
+            snapshotNamesCache = new CachedReport(name + " snapshotmanifest", () -> httpRequest("snapshotmanifest", "GET", new ArrayList<Pair<String, String>>(), true), reportTTL);
+        }
+        return snapshotNamesCache;
     }
 
     /**
      * Delete all snapshots on the limelight
      * 
-     * @see Limelight#synchronousDeleteAllSnapshots()
+     * @return a future that completes when the limelight responds
      */
-    public void deleteAllSnapshots() {
-        async(() -> {
-            getRequest("deletesnapshots");
-            return null;
-        });
+    public CompletableFuture<String> deleteAllSnapshots() {
+        return getRequest("deletesnapshots");
+    }
+
+    /**
+     * Return the limelight's current hardware report, without blocking
+     * 
+     * @return a future of the hardware report, an empty object if the request fails
+     */
+    public CompletableFuture<JsonNode> getHWReportAsync() {
+        return getRequest("hwreport").thenApply(rawReport -> parseJson(rawReport == null ? "{}" : rawReport));
     }
 
     /**
      * Return the limelight's current hardware report
      * 
-     * @return a json object containing the hardware report
+     * @return the last hardware report received by the background refresh, an empty object if none has been received
+     * @implNote the first call blocks until the first request completes or times out, later calls return at once
+     * @see #getHWReportCache()
      */
     public JsonNode getHWReport() {
-        String rawReport = async(() -> getRequest("hwreport"));
-        if (rawReport == null)
-            return parseJson("{}");
-        return parseJson(rawReport);
+        return getHWReportCache().getOrWait();
+    }
+
+    /**
+     * @return the hardware report cache, refreshed in the background and started on first use
+     */
+    public CachedReport getHWReportCache() {
+        if (hwReportCache == null) {
+            hwReportCache = new CachedReport(name + " hwreport", () -> httpRequest("hwreport", "GET", new ArrayList<Pair<String, String>>(), true), reportTTL);
+        }
+        return hwReportCache;
+    }
+
+    /**
+     * Set how long cached reports stay fresh, must be called before the caches are first used
+     * 
+     * @param ttl the time to live of cached reports (seconds)
+     */
+    public void setReportTTL(double ttl) {
+        this.reportTTL = ttl;
     }
 
     /**
      * @param raw a raw String containing json data
      * @return a JsonNode containing parsed json data, or null if the data is invalid Errors are printed to stderr, and a null value is returned
      */
-    private JsonNode parseJson(String raw) {
-        ObjectMapper objectMapper = new ObjectMapper();
+    static JsonNode parseJson(String raw) {
         try {
             return objectMapper.readTree(raw);
         } catch (JsonProcessingException e) {
@@ -621,19 +875,39 @@ public class Limelight {
         }
     }
 
+    private DoubleArrayPublisher orientationPub = null;
+    private final double[] orientation = new double[6];
+
+    /**
+     * @return the publisher for robot_orientation_set, created on first use and shared with
+     *         {@link OrientationPublisher}
+     */
+    synchronized DoubleArrayPublisher getOrientationPublisher() {
+        if (orientationPub == null) {
+            orientationPub = table.getDoubleArrayTopic("robot_orientation_set").publish();
+        }
+        return orientationPub;
+    }
+
+    /**
+     * @return the network table instance this limelight publishes to
+     */
+    NetworkTableInstance getInstance() {
+        return table.getInstance();
+    }
+
     /*
      * Sets the robot's orientation to the given values Must be called in periodic (per Megatag2)
+     * For a faster rate than the main loop, see OrientationPublisher
      */
     public void setRobotOrientation(double yaw, double yawRate, double pitch, double pitchRate, double roll, double rollRate) {
-
-        double[] entries = new double[6];
-        entries[0] = yaw;
-        entries[1] = yawRate;
-        entries[2] = pitch;
-        entries[3] = pitchRate;
-        entries[4] = roll;
-        entries[5] = rollRate;
-        setArrayNT("robot_orientation_set", entries);
+        orientation[0] = yaw;
+        orientation[1] = yawRate;
+        orientation[2] = pitch;
+        orientation[3] = pitchRate;
+        orientation[4] = roll;
+        orientation[5] = rollRate;
+        getOrientationPublisher().set(orientation);
     }
 
     /**
@@ -0,0 +1,278 @@
+package frc.thunder.vision;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDouble;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import frc.thunder.math.Histogram;
+import frc.thunder.shuffleboard.LightningShuffleboardPeriodic;
+import frc.thunder.shuffleboard.TelemetryScheduler;
+
+/**
+ * Tracks how well a limelight's stream is keeping up. Every heartbeat, pipeline latency and capture
+ * latency update is queued by NT, so nothing is missed between samples: the heartbeat gives the
+ * frame rate, the gaps between frames, and frames that were dropped (heartbeat skipped) or repeated
+ * (heartbeat unchanged), all timed with the NT receive timestamps.
+ *
+ * The stats are sampled through the {@link TelemetryScheduler} and published at a low rate to the
+ * "Vision Health" tab. Consumers can gate on {@link #isStale()}. The latency and gap histograms
+ * decay (see {@link Histogram#decay()}), so their percentiles show the last several seconds rather
+ * than the whole run, and {@link #resetHistograms()} clears them outright.
+ *
+ * @see Limelight#getHealth()
+ */
+public class LimelightHealth {
+    /** How often (seconds) the queues are read, the queues hold well over this many frames */
+    public static final double UPDATE_PERIOD = 0.1;
+
+    /** How often (seconds) the stats are published */
+    public static final double PUBLISH_PERIOD = 0.5;
+
+    /** How long (seconds) without a frame before the stream is considered stale */
+    public static final double DEFAULT_STALE_TIMEOUT = 0.5;
+
+    /** Frames queued between reads, ~0.3s at the limelight's max frame rate */
+    private static final int QUEUE_DEPTH = 32;
+
+    /** Window (seconds) the frame rate is averaged over */
+    private static final double FPS_WINDOW = 1.0;
+
+    /** How long (seconds) until a recorded latency or gap counts half as much */
+    public static final double DEFAULT_HISTOGRAM_HALF_LIFE = 5.0;
+
+    private final DoubleSubscriber hbSub;
+    private final DoubleSubscriber tlSub;
+    private final DoubleSubscriber clSub;
+    private final DoubleArraySubscriber poseSub;
+
+    /** Time between frames (ms) */
+    private final Histogram gapHistogram = new Histogram(0, 200, 100);
+    /** Pipeline latency (ms) */
+    private final Histogram tlHistogram = new Histogram(0, 100, 50);
+    /** Capture latency (ms) */
+    private final Histogram clHistogram = new Histogram(0, 100, 50);
+
+    private double staleTimeout = DEFAULT_STALE_TIMEOUT;
+    private double histogramHalfLife = DEFAULT_HISTOGRAM_HALF_LIFE;
+    private long lastDecay = 0;
+
+    private double lastHeartbeat = Double.NaN;
+    private long lastFrameTime = 0;
+    private long lastPoseTime = 0;
+    private long lastValidPoseTime = 0;
+
+    private long frameCount = 0;
+    private long droppedCount = 0;
+    private long duplicateCount = 0;
+
+    private long windowStart = 0;
+    private long windowFrames = 0;
+    private double frameRate = 0;
+
+    private final TelemetryScheduler.Task updateTask;
+    private final LightningShuffleboardPeriodic telemetry;
+
+    /**
+     * @param table the limelight's network table
+     * @param name the limelight's name, used to label the published stats
+     */
+    LimelightHealth(NetworkTable table, String name) {
+        hbSub = queuedSubscriber(table, "hb");
+        tlSub = queuedSubscriber(table, "tl");
+        clSub = queuedSubscriber(table, "cl");
+        poseSub = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(new double[0]);
+
+        updateTask = TelemetryScheduler.schedule(UPDATE_PERIOD, this::update);
+        telemetry = LightningShuffleboardPeriodic.builder("Vision Health")
+                .withPeriod(PUBLISH_PERIOD)
+                .addDouble(name + " fps", this::getFrameRate)
+                .addDouble(name + " gap p50", () -> gapHistogram.getPercentile(0.5))
+                .addDouble(name + " gap p99", () -> gapHistogram.getPercentile(0.99))
+                .addDouble(name + " tl p50", () -> tlHistogram.getPercentile(0.5))
+                .addDouble(name + " tl p95", () -> tlHistogram.getPercentile(0.95))
+                .addDouble(name + " cl p50", () -> clHistogram.getPercentile(0.5))
+                .addDouble(name + " cl p95", () -> clHistogram.getPercentile(0.95))
+                .addDouble(name + " dropped", () -> droppedCount)
+                .addDouble(name + " duplicate", () -> duplicateCount)
+                .addDouble(name + " since pose", this::getTimeSinceValidPose)
+                .addBoolean(name + " stale", this::isStale)
+                .build();
+    }
+
+    private static DoubleSubscriber queuedSubscriber(NetworkTable table, String key) {
+        return table.getDoubleTopic(key).subscribe(0,
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true),
+                PubSubOption.pollStorage(QUEUE_DEPTH));
+    }
+
+    /**
+     * Reads every update queued since the last call, runs from the {@link TelemetryScheduler}
+     */
+    public void update() {
+        long now = NetworkTablesJNI.now();
+        if (windowStart == 0) {
+            windowStart = now;
+            lastDecay = now;
+        }
+
+        if ((now - lastDecay) / 1.0e6 >= histogramHalfLife) {
+            gapHistogram.decay();
+            tlHistogram.decay();
+            clHistogram.decay();
+            lastDecay = now;
+        }
+
+        for (TimestampedDouble frame : hbSub.readQueue()) {
+            if (!Double.isNaN(lastHeartbeat)) {
+                double delta = frame.value - lastHeartbeat;
+                if (delta == 0) {
+                    duplicateCount++;
+                    continue;
+                } else if (delta > 1) {
+                    droppedCount += (long) delta - 1;
+                }
+                // a negative delta is the limelight restarting, so it counts as a normal frame
+
+                gapHistogram.add((frame.timestamp - lastFrameTime) / 1000d);
+            }
+
+            lastHeartbeat = frame.value;
+            lastFrameTime = frame.timestamp;
+            frameCount++;
+            windowFrames++;
+        }
+
+        for (double latency : tlSub.readQueueValues()) {
+            tlHistogram.add(latency);
+        }
+        for (double latency : clSub.readQueueValues()) {
+            clHistogram.add(latency);
+        }
+
+        TimestampedDoubleArray pose = poseSub.getAtomic();
+        if (pose.timestamp != lastPoseTime) {
+            lastPoseTime = pose.timestamp;
+            // a pose with no tags is the limelight saying it has nothing
+            if (pose.value.length >= 10 && pose.value[7] > 0) {
+                lastValidPoseTime = pose.timestamp;
+            }
+        }
+
+        double elapsed = (now - windowStart) / 1.0e6;
+        if (elapsed >= FPS_WINDOW) {
+            frameRate = windowFrames / elapsed;
+            windowFrames = 0;
+            windowStart = now;
+        }
+    }
+
+    /**
+     * @return the frame rate over the last second (frames per second)
+     */
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    /**
+     * @return the distribution of time between frames (ms)
+     */
+    public Histogram getGapHistogram() {
+        return gapHistogram;
+    }
+
+    /**
+     * @return the distribution of pipeline latency (ms)
+     */
+    public Histogram getPipelineLatencyHistogram() {
+        return tlHistogram;
+    }
+
+    /**
+     * @return the distribution of capture latency (ms)
+     */
+    public Histogram getCaptureLatencyHistogram() {
+        return clHistogram;
+    }
+
+    /**
+     * @return the number of frames received
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the number of frames the heartbeat skipped over
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the number of updates that repeated the previous heartbeat
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * @return how long ago (seconds) the last frame was received, infinite if none has been
+     */
+    public double getTimeSinceFrame() {
+        return lastFrameTime == 0 ? Double.POSITIVE_INFINITY : (NetworkTablesJNI.now() - lastFrameTime) / 1.0e6;
+    }
+
+    /**
+     * @return how long ago (seconds) the last pose with at least one tag was received, infinite if
+     *         none has been
+     */
+    public double getTimeSinceValidPose() {
+        return lastValidPoseTime == 0 ? Double.POSITIVE_INFINITY : (NetworkTablesJNI.now() - lastValidPoseTime) / 1.0e6;
+    }
+
+    /**
+     * @return whether no frame has been received within the stale timeout
+     */
+    public boolean isStale() {
+        return getTimeSinceFrame() > staleTimeout;
+    }
+
+    /**
+     * @param timeout how long (seconds) without a frame before the stream is considered stale
+     */
+    public void setStaleTimeout(double timeout) {
+        staleTimeout = timeout;
+    }
+
+    /**
+     * @param halfLife how long (seconds) until a recorded latency or gap counts half as much
+     */
+    public void setHistogramHalfLife(double halfLife) {
+        histogramHalfLife = halfLife;
+    }
+
+    /**
+     * Forget the latency and gap distributions, eg at the start of a match
+     */
+    public void resetHistograms() {
+        gapHistogram.reset();
+        tlHistogram.reset();
+        clHistogram.reset();
+    }
+
+    /**
+     * Stops tracking and publishing
+     */
+    public void close() {
+        updateTask.cancel();
+        telemetry.cancel();
+        hbSub.close();
+        tlSub.close();
+        clSub.close();
+        poseSub.close();
+    }
+}
@@ -0,0 +1,410 @@
+package frc.thunder.vision;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes the limelight json results dump with Jackson's streaming parser, straight into a small
+ * pool of reusable {@link LimelightResults}. No JsonNode tree is built, field names come from
+ * Jackson's symbol table, and class and family names are only copied out when they change, so a
+ * steady stream of frames decodes without per-frame garbage beyond the parser itself.
+ *
+ * The pool hands out its results round robin, so a result stays valid until the pool wraps around
+ * (eg a caller can keep the previous frame while the next one is decoded).
+ */
+public class LimelightJsonParser {
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final LimelightResults[] pool;
+    private int next = 0;
+
+    private final double[] scratchPoint = new double[2];
+
+    public LimelightJsonParser() {
+        this(2);
+    }
+
+    /**
+     * @param poolSize the number of results to rotate through
+     */
+    public LimelightJsonParser(int poolSize) {
+        pool = new LimelightResults[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            pool[i] = new LimelightResults();
+        }
+    }
+
+    /**
+     * Decode a dump into the next result of the pool
+     *
+     * @param json the raw json dump
+     * @return the decoded result, with valid false if the dump could not be parsed
+     */
+    public LimelightResults parse(String json) {
+        LimelightResults results = pool[next];
+        next = (next + 1) % pool.length;
+        parse(json, results);
+        return results;
+    }
+
+    /**
+     * Decode a dump into the given result
+     *
+     * @param json the raw json dump
+     * @param results the result to decode into
+     * @return whether the dump was parsed
+     */
+    public boolean parse(String json, LimelightResults results) {
+        results.reset();
+        if (json == null || json.isEmpty()) {
+            return false;
+        }
+
+        try (JsonParser parser = factory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            parseResults(parser, results);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Bad Limelight json: " + e.getMessage());
+            results.reset();
+            return false;
+        }
+    }
+
+    /**
+     * Parse the fields of the top level object, or of the "Results" object older firmware wraps them in
+     */
+    private void parseResults(JsonParser parser, LimelightResults results) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+
+            switch (field) {
+                case "Results":
+                    if (token == JsonToken.START_OBJECT) {
+                        parseResults(parser, results);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "Fiducial":
+                    results.fiducialTotal = parseFiducials(parser, results.fiducials);
+                    results.fiducialCount = Math.min(results.fiducialTotal, results.fiducials.length);
+                    break;
+                case "Detector":
+                    results.detectionTotal = parseDetections(parser, results.detections);
+                    results.detectionCount = Math.min(results.detectionTotal, results.detections.length);
+                    break;
+                case "Classifier":
+                    results.classificationTotal = parseClassifications(parser, results.classifications);
+                    results.classificationCount = Math.min(results.classificationTotal, results.classifications.length);
+                    break;
+                case "botpose":
+                    readArray(parser, results.botpose);
+                    break;
+                case "botpose_wpiblue":
+                    readArray(parser, results.botposeWpiBlue);
+                    break;
+                case "botpose_wpired":
+                    readArray(parser, results.botposeWpiRed);
+                    break;
+                case "botpose_tagcount":
+                    results.botposeTagCount = parser.getValueAsInt();
+                    break;
+                case "botpose_span":
+                    results.botposeSpan = parser.getValueAsDouble();
+                    break;
+                case "botpose_avgdist":
+                    results.botposeAvgDist = parser.getValueAsDouble();
+                    break;
+                case "botpose_avgarea":
+                    results.botposeAvgArea = parser.getValueAsDouble();
+                    break;
+                case "pID":
+                    results.pipelineIndex = parser.getValueAsInt();
+                    break;
+                case "ts":
+                    results.timestamp = parser.getValueAsDouble();
+                    break;
+                case "tl":
+                    results.pipelineLatency = parser.getValueAsDouble();
+                    break;
+                case "cl":
+                    results.captureLatency = parser.getValueAsDouble();
+                    break;
+                case "v":
+                    results.valid = parser.getValueAsInt() == 1;
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return the number of fiducials in the array, which may be more than were stored
+     */
+    private int parseFiducials(JsonParser parser, LimelightResults.Fiducial[] fiducials) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+
+        int count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (count >= fiducials.length) {
+                parser.skipChildren();
+                count++;
+                continue;
+            }
+
+            LimelightResults.Fiducial fiducial = fiducials[count++];
+            fiducial.reset();
+            boolean hasFamily = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "fID":
+                        fiducial.id = parser.getValueAsInt();
+                        break;
+                    case "fam":
+                        fiducial.family = reuseText(parser, fiducial.family);
+                        hasFamily = true;
+                        break;
+                    case "pts":
+                        fiducial.cornerCount = readCorners(parser, fiducial.corners);
+                        break;
+                    case "skew":
+                        fiducial.skew = parser.getValueAsDouble();
+                        break;
+                    case "t6c_ts":
+                        readArray(parser, fiducial.cameraPoseTargetSpace);
+                        break;
+                    case "t6r_fs":
+                        readArray(parser, fiducial.robotPoseFieldSpace);
+                        break;
+                    case "t6r_ts":
+                        readArray(parser, fiducial.robotPoseTargetSpace);
+                        break;
+                    case "t6t_cs":
+                        readArray(parser, fiducial.targetPoseCameraSpace);
+                        break;
+                    case "t6t_rs":
+                        readArray(parser, fiducial.targetPoseRobotSpace);
+                        break;
+                    case "ta":
+                        fiducial.ta = parser.getValueAsDouble();
+                        break;
+                    case "tx":
+                        fiducial.tx = parser.getValueAsDouble();
+                        break;
+                    case "ty":
+                        fiducial.ty = parser.getValueAsDouble();
+                        break;
+                    case "txp":
+                        fiducial.txPixels = parser.getValueAsDouble();
+                        break;
+                    case "typ":
+                        fiducial.tyPixels = parser.getValueAsDouble();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            if (!hasFamily) {
+                fiducial.family = "";
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of detections in the array, which may be more than were stored
+     */
+    private int parseDetections(JsonParser parser, LimelightResults.Detection[] detections) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+
+        int count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (count >= detections.length) {
+                parser.skipChildren();
+                count++;
+                continue;
+            }
+
+            LimelightResults.Detection detection = detections[count++];
+            detection.reset();
+            boolean hasClassName = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "class":
+                        detection.className = reuseText(parser, detection.className);
+                        hasClassName = true;
+                        break;
+                    case "classID":
+                        detection.classId = parser.getValueAsInt();
+                        break;
+                    case "conf":
+                        detection.confidence = parser.getValueAsDouble();
+                        break;
+                    case "pts":
+                        detection.cornerCount = readCorners(parser, detection.corners);
+                        break;
+                    case "ta":
+                        detection.ta = parser.getValueAsDouble();
+                        break;
+                    case "tx":
+                        detection.tx = parser.getValueAsDouble();
+                        break;
+                    case "ty":
+                        detection.ty = parser.getValueAsDouble();
+                        break;
+                    case "txp":
+                        detection.txPixels = parser.getValueAsDouble();
+                        break;
+                    case "typ":
+                        detection.tyPixels = parser.getValueAsDouble();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            if (!hasClassName) {
+                detection.className = "";
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of classifications in the array, which may be more than were stored
+     */
+    private int parseClassifications(JsonParser parser, LimelightResults.Classification[] classifications) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+
+        int count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (count >= classifications.length) {
+                parser.skipChildren();
+                count++;
+                continue;
+            }
+
+            LimelightResults.Classification classification = classifications[count++];
+            classification.reset();
+            boolean hasClassName = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "class":
+                        classification.className = reuseText(parser, classification.className);
+                        hasClassName = true;
+                        break;
+                    case "classID":
+                        classification.classId = parser.getValueAsInt();
+                        break;
+                    case "conf":
+                        classification.confidence = parser.getValueAsDouble();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            if (!hasClassName) {
+                classification.className = "";
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read a number array into dest, extra values are skipped
+     *
+     * @return the number of values stored
+     */
+    private static int readArray(JsonParser parser, double[] dest) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+
+        int count = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (count < dest.length && token.isNumeric()) {
+                dest[count++] = parser.getDoubleValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read an array of [x, y] points into dest as x0, y0, x1, y1...
+     *
+     * @return the number of points stored
+     */
+    private int readCorners(JsonParser parser, double[] dest) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+
+        int values = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_ARRAY && values + 2 <= dest.length) {
+                int read = readArray(parser, scratchPoint);
+                dest[values] = read > 0 ? scratchPoint[0] : 0;
+                dest[values + 1] = read > 1 ? scratchPoint[1] : 0;
+                values += 2;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return values / 2;
+    }
+
+    /**
+     * @return previous if the current text token matches it, otherwise a new String of the text
+     */
+    private static String reuseText(JsonParser parser, String previous) throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+
+        if (text != null && previous.length() == length) {
+            boolean same = true;
+            for (int i = 0; i < length && same; i++) {
+                same = previous.charAt(i) == text[offset + i];
+            }
+            if (same) {
+                return previous;
+            }
+        }
+        return parser.getText();
+    }
+}
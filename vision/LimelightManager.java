@@ -0,0 +1,289 @@
+package frc.thunder.vision;
+
+import edu.wpi.first.wpilibj.Notifier;
+import frc.thunder.util.PoseMeasurement;
+
+/**
+ * Owns every limelight on the robot and turns their pose frames into one ordered stream of
+ * measurements. A background notifier drains each camera's {@link PoseFrameQueue}, drops frames
+ * that repeat or go back in time, orders them by capture time
+ * ({@link PoseMeasurement#getFPGATimestamp()}), drops captures that repeat across cameras, and
+ * rejects untrusted poses. The main loop then only has to hand the results to
+ * the pose estimator, so vision is processed once, off the main loop, however many consumers there
+ * are.
+ *
+ * The manager drains each camera's blue pose queue itself, so nothing else should drain them.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * vision = new LimelightManager(frontLimelight, backLimelight);
+ * vision.start();
+ *
+ * // in periodic
+ * vision.drain((measurement, xyStdDev, thetaStdDev) -&gt; estimator.addVisionMeasurement(
+ *         measurement.toPose2d(), measurement.getFPGATimestamp(),
+ *         VecBuilder.fill(xyStdDev, xyStdDev, thetaStdDev)));
+ * </pre>
+ */
+public class LimelightManager implements AutoCloseable {
+    /** How often (seconds) the cameras are drained, faster than any limelight frame rate */
+    public static final double DEFAULT_PERIOD = 0.01;
+
+    /** Number of measurements held for the main loop, ~0.5s of frames from a few cameras */
+    private static final int OUTPUT_CAPACITY = 64;
+
+    /**
+     * Receives each measurement, in capture time order
+     */
+    @FunctionalInterface
+    public interface MeasurementConsumer {
+        /**
+         * @param measurement the measurement, only valid for the duration of the call
+         * @param xyStdDev the translation standard deviation (meters)
+         * @param thetaStdDev the rotation standard deviation (radians)
+         */
+        void accept(PoseMeasurement measurement, double xyStdDev, double thetaStdDev);
+    }
+
+    private final Limelight[] cameras;
+    private final PoseFrameQueue[] queues;
+    private final double[] lastCaptureTimes;
+    private double lastMergedTime = Double.NEGATIVE_INFINITY;
+    private final double period;
+    private final Notifier notifier;
+
+    // frames of a single background cycle, only touched by the notifier thread
+    private final PoseMeasurement[] batch;
+    private int batchSize = 0;
+
+    // measurements waiting for the main loop, guarded by this
+    private final PoseMeasurement[] output = new PoseMeasurement[OUTPUT_CAPACITY];
+    private int outputHead = 0;
+    private int outputSize = 0;
+
+    // measurements being handed out by drain, only touched by the main thread
+    private final PoseMeasurement[] drained = new PoseMeasurement[OUTPUT_CAPACITY];
+    private final double[] stdDevs = new double[3];
+
+    private volatile VisionGate gate = null;
+
+    private volatile long acceptedCount = 0;
+    private volatile long duplicateCount = 0;
+    private volatile long rejectedCount = 0;
+    private volatile long overflowCount = 0;
+
+    /**
+     * @param cameras the limelights to fuse
+     */
+    public LimelightManager(Limelight... cameras) {
+        this(DEFAULT_PERIOD, cameras);
+    }
+
+    /**
+     * @param period how often (seconds) the cameras are drained
+     * @param cameras the limelights to fuse
+     */
+    public LimelightManager(double period, Limelight... cameras) {
+        this.cameras = cameras;
+        this.period = period;
+
+        queues = new PoseFrameQueue[cameras.length];
+        lastCaptureTimes = new double[cameras.length];
+        for (int i = 0; i < cameras.length; i++) {
+            queues[i] = cameras[i].getBluePoseQueue();
+            lastCaptureTimes[i] = Double.NEGATIVE_INFINITY;
+        }
+
+        batch = new PoseMeasurement[cameras.length * PoseFrameQueue.DEFAULT_DEPTH];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new PoseMeasurement();
+        }
+        for (int i = 0; i < OUTPUT_CAPACITY; i++) {
+            output[i] = new PoseMeasurement();
+            drained[i] = new PoseMeasurement();
+        }
+
+        notifier = new Notifier(this::process);
+        notifier.setName("LimelightManager");
+    }
+
+    /**
+     * Starts draining the cameras in the background
+     */
+    public void start() {
+        notifier.startPeriodic(period);
+    }
+
+    /**
+     * Stops draining the cameras
+     */
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * Drains every camera once, runs on the notifier thread
+     */
+    private void process() {
+        batchSize = 0;
+
+        for (int camera = 0; camera < queues.length; camera++) {
+            int frames = queues[camera].drain();
+
+            for (int i = 0; i < frames; i++) {
+                if (batchSize == batch.length) {
+                    // more frames than a cycle can hold, count the rest as lost
+                    overflowCount += frames - i;
+                    break;
+                }
+
+                PoseMeasurement measurement = batch[batchSize];
+                if (!queues[camera].getPose(i, measurement)) {
+                    continue;
+                }
+
+                // repeated or out of order frames carry nothing new
+                double captureTime = measurement.getFPGATimestamp();
+                if (captureTime <= lastCaptureTimes[camera]) {
+                    duplicateCount++;
+                    continue;
+                }
+                lastCaptureTimes[camera] = captureTime;
+
+                batchSize++;
+            }
+        }
+
+        // each camera is already in order, so an insertion sort merges them cheaply
+        for (int i = 1; i < batchSize; i++) {
+            PoseMeasurement measurement = batch[i];
+            double captureTime = measurement.getFPGATimestamp();
+            int j = i - 1;
+            while (j >= 0 && batch[j].getFPGATimestamp() > captureTime) {
+                batch[j + 1] = batch[j];
+                j--;
+            }
+            batch[j + 1] = measurement;
+        }
+
+        // drop captures repeated across cameras (or from the last cycle), then gate what is left,
+        // swapping kept measurements to the front so the pool stays intact
+        VisionGate currentGate = gate;
+        int kept = 0;
+        for (int i = 0; i < batchSize; i++) {
+            PoseMeasurement measurement = batch[i];
+            double captureTime = measurement.getFPGATimestamp();
+            if (captureTime == lastMergedTime) {
+                duplicateCount++;
+                continue;
+            }
+            lastMergedTime = captureTime;
+
+            if (currentGate != null ? currentGate.check(measurement) != VisionGate.Reason.ACCEPTED : !measurement.trust()) {
+                rejectedCount++;
+                continue;
+            }
+
+            batch[i] = batch[kept];
+            batch[kept] = measurement;
+            kept++;
+        }
+        batchSize = kept;
+
+        synchronized (this) {
+            for (int i = 0; i < batchSize; i++) {
+                if (outputSize == OUTPUT_CAPACITY) {
+                    // the main loop fell behind, drop the oldest measurement
+                    outputHead = (outputHead + 1) % OUTPUT_CAPACITY;
+                    outputSize--;
+                    overflowCount++;
+                }
+                output[(outputHead + outputSize) % OUTPUT_CAPACITY].copyFrom(batch[i]);
+                outputSize++;
+            }
+        }
+        acceptedCount += batchSize;
+    }
+
+    /**
+     * Hands every measurement received since the last call to the consumer, oldest first. Call this
+     * once per loop from the main thread.
+     *
+     * @param consumer receives each measurement with its standard deviations
+     * @return the number of measurements handed out
+     */
+    public int drain(MeasurementConsumer consumer) {
+        // odometry is read here, on the main thread, and only the copy is used off it
+        VisionGate currentGate = gate;
+        if (currentGate != null) {
+            currentGate.update();
+        }
+
+        int count;
+        synchronized (this) {
+            count = outputSize;
+            for (int i = 0; i < count; i++) {
+                drained[i].copyFrom(output[(outputHead + i) % OUTPUT_CAPACITY]);
+            }
+            outputHead = 0;
+            outputSize = 0;
+        }
+
+        for (int i = 0; i < count; i++) {
+            drained[i].getStdDevs(stdDevs);
+            consumer.accept(drained[i], stdDevs[0], stdDevs[2]);
+        }
+
+        return count;
+    }
+
+    /**
+     * @param gate the checks frames must pass, null to use {@link PoseMeasurement#trust()}
+     */
+    public void setGate(VisionGate gate) {
+        this.gate = gate;
+    }
+
+    /**
+     * @return the limelights owned by this manager
+     */
+    public Limelight[] getCameras() {
+        return cameras;
+    }
+
+    /**
+     * @return the number of measurements accepted into the stream
+     */
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * @return the number of frames dropped for repeating (on one camera or across cameras) or going
+     *         back in time
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * @return the number of frames rejected as untrusted (or by the gate)
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return the number of measurements lost because drain was not called often enough, or because
+     *         more frames arrived in one background cycle than it can hold
+     */
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+    }
+}
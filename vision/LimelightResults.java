@@ -0,0 +1,177 @@
+package frc.thunder.vision;
+
+import java.util.Arrays;
+
+/**
+ * Decoded limelight json results dump. Every array is fixed capacity and allocated once, so the
+ * same instance is decoded into frame after frame by {@link LimelightJsonParser}. Targets past the
+ * capacity are counted in the *Total fields but not stored, the *Count fields only count the stored
+ * targets and are always safe to index with.
+ *
+ * Angles are degrees, poses are (X,Y,Z,Roll,Pitch,Yaw) in meters and degrees, latencies are
+ * milliseconds.
+ *
+ * @see Limelight#getTargetJSON()
+ */
+public class LimelightResults {
+    public static final int MAX_FIDUCIALS = 32;
+    public static final int MAX_DETECTIONS = 16;
+    public static final int MAX_CLASSIFICATIONS = 8;
+
+    /** Whether the dump held valid targets */
+    public boolean valid;
+    /** Index of the pipeline that produced the frame */
+    public int pipelineIndex;
+    /** Timestamp of the frame on the limelight (ms) */
+    public double timestamp;
+    public double pipelineLatency;
+    public double captureLatency;
+
+    public final double[] botpose = new double[6];
+    public final double[] botposeWpiBlue = new double[6];
+    public final double[] botposeWpiRed = new double[6];
+    public int botposeTagCount;
+    public double botposeSpan;
+    public double botposeAvgDist;
+    public double botposeAvgArea;
+
+    public final Fiducial[] fiducials = new Fiducial[MAX_FIDUCIALS];
+    /** Number of fiducials stored, at most {@link #MAX_FIDUCIALS} */
+    public int fiducialCount;
+    /** Number of fiducials in the dump, including any past the capacity */
+    public int fiducialTotal;
+
+    public final Detection[] detections = new Detection[MAX_DETECTIONS];
+    /** Number of detections stored, at most {@link #MAX_DETECTIONS} */
+    public int detectionCount;
+    /** Number of detections in the dump, including any past the capacity */
+    public int detectionTotal;
+
+    public final Classification[] classifications = new Classification[MAX_CLASSIFICATIONS];
+    /** Number of classifications stored, at most {@link #MAX_CLASSIFICATIONS} */
+    public int classificationCount;
+    /** Number of classifications in the dump, including any past the capacity */
+    public int classificationTotal;
+
+    public LimelightResults() {
+        for (int i = 0; i < MAX_FIDUCIALS; i++) {
+            fiducials[i] = new Fiducial();
+        }
+        for (int i = 0; i < MAX_DETECTIONS; i++) {
+            detections[i] = new Detection();
+        }
+        for (int i = 0; i < MAX_CLASSIFICATIONS; i++) {
+            classifications[i] = new Classification();
+        }
+    }
+
+    /**
+     * Clear the frame values before a new decode, each target is cleared as it is reused
+     */
+    void reset() {
+        valid = false;
+        pipelineIndex = 0;
+        timestamp = pipelineLatency = captureLatency = 0;
+        Arrays.fill(botpose, 0);
+        Arrays.fill(botposeWpiBlue, 0);
+        Arrays.fill(botposeWpiRed, 0);
+        botposeTagCount = 0;
+        botposeSpan = botposeAvgDist = botposeAvgArea = 0;
+        fiducialCount = detectionCount = classificationCount = 0;
+        fiducialTotal = detectionTotal = classificationTotal = 0;
+    }
+
+    /**
+     * @return the total latency of the frame (ms)
+     */
+    public double getTotalLatency() {
+        return pipelineLatency + captureLatency;
+    }
+
+    /**
+     * An AprilTag result
+     */
+    public static class Fiducial {
+        public int id;
+        public String family = "";
+        public double tx;
+        public double ty;
+        public double txPixels;
+        public double tyPixels;
+        public double ta;
+        public double skew;
+
+        /** Corners as x0, y0, x1, y1... in pixels */
+        public final double[] corners = new double[8];
+        public int cornerCount;
+
+        public final double[] cameraPoseTargetSpace = new double[6];
+        public final double[] robotPoseFieldSpace = new double[6];
+        public final double[] robotPoseTargetSpace = new double[6];
+        public final double[] targetPoseCameraSpace = new double[6];
+        public final double[] targetPoseRobotSpace = new double[6];
+
+        /**
+         * Clear the values before the fiducial is reused, the family is kept so an unchanged one
+         * isn't copied again
+         */
+        void reset() {
+            id = 0;
+            tx = ty = txPixels = tyPixels = ta = skew = 0;
+            Arrays.fill(corners, 0);
+            cornerCount = 0;
+            Arrays.fill(cameraPoseTargetSpace, 0);
+            Arrays.fill(robotPoseFieldSpace, 0);
+            Arrays.fill(robotPoseTargetSpace, 0);
+            Arrays.fill(targetPoseCameraSpace, 0);
+            Arrays.fill(targetPoseRobotSpace, 0);
+        }
+    }
+
+    /**
+     * A neural detector result
+     */
+    public static class Detection {
+        public int classId;
+        public String className = "";
+        public double confidence;
+        public double tx;
+        public double ty;
+        public double txPixels;
+        public double tyPixels;
+        public double ta;
+
+        /** Corners as x0, y0, x1, y1... in pixels */
+        public final double[] corners = new double[8];
+        public int cornerCount;
+
+        /**
+         * Clear the values before the detection is reused, the class name is kept so an unchanged
+         * one isn't copied again
+         */
+        void reset() {
+            classId = 0;
+            confidence = tx = ty = txPixels = tyPixels = ta = 0;
+            Arrays.fill(corners, 0);
+            cornerCount = 0;
+        }
+    }
+
+    /**
+     * A neural classifier result
+     */
+    public static class Classification {
+        public int classId;
+        public String className = "";
+        public double confidence;
+
+        /**
+         * Clear the values before the classification is reused, the class name is kept so an
+         * unchanged one isn't copied again
+         */
+        void reset() {
+            classId = 0;
+            confidence = 0;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package frc.thunder.vision;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A frame-consistent copy of a limelight's targeting values. Every key is subscribed once, and
+ * {@link #update()} copies them all into plain fields, so the accessors are simple field reads with
+ * no NT lookups or allocation.
+ *
+ * The limelight bumps its heartbeat (hb) once per frame, so update re-reads the values if the
+ * heartbeat changed while they were being copied. Array topics are only re-read when they change.
+ *
+ * @see Limelight#enableSnapshot()
+ */
+public class LimelightSnapshot {
+    private static final double[] EMPTY = {};
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final DoubleSubscriber heartbeatSub;
+    private final DoubleSubscriber tvSub;
+    private final DoubleSubscriber txSub;
+    private final DoubleSubscriber tySub;
+    private final DoubleSubscriber taSub;
+    private final DoubleSubscriber tlSub;
+    private final DoubleSubscriber clSub;
+    private final DoubleSubscriber tshortSub;
+    private final DoubleSubscriber tlongSub;
+    private final DoubleSubscriber thorSub;
+    private final DoubleSubscriber tvertSub;
+    private final DoubleSubscriber tidSub;
+    private final DoubleSubscriber getpipeSub;
+    private final StringSubscriber tclassSub;
+
+    private final DoubleArraySubscriber tcSub;
+    private final DoubleArraySubscriber camPoseRobotSpaceSub;
+    private final DoubleArraySubscriber camPoseTargetSpaceSub;
+    private final DoubleArraySubscriber targetPoseCameraSpaceSub;
+    private final DoubleArraySubscriber targetPoseRobotSpaceSub;
+    private final DoubleArraySubscriber botPoseBlueSub;
+
+    private double heartbeat;
+    private boolean hasTarget;
+    private double tx;
+    private double ty;
+    private double ta;
+    private double pipelineLatency;
+    private double captureLatency;
+    private double tshort;
+    private double tlong;
+    private double thor;
+    private double tvert;
+    private int tid;
+    private int pipeline;
+    private String tclass = "";
+
+    private double[] tc = EMPTY;
+    private double[] camPoseRobotSpace = EMPTY;
+    private double[] camPoseTargetSpace = EMPTY;
+    private double[] targetPoseCameraSpace = EMPTY;
+    private double[] targetPoseRobotSpace = EMPTY;
+    private double[] botPoseBlue = EMPTY;
+    private long botPoseBlueTimestamp = 0;
+
+    // last change time of each array topic, so unchanged arrays are not copied out of NT again
+    private long tcChange = -1;
+    private long camPoseRobotSpaceChange = -1;
+    private long camPoseTargetSpaceChange = -1;
+    private long targetPoseCameraSpaceChange = -1;
+    private long targetPoseRobotSpaceChange = -1;
+    private long botPoseBlueChange = -1;
+
+    /**
+     * @param table the limelight's network table
+     */
+    LimelightSnapshot(NetworkTable table) {
+        heartbeatSub = table.getDoubleTopic("hb").subscribe(0);
+        tvSub = table.getDoubleTopic("tv").subscribe(0);
+        txSub = table.getDoubleTopic("tx").subscribe(0);
+        tySub = table.getDoubleTopic("ty").subscribe(0);
+        taSub = table.getDoubleTopic("ta").subscribe(0);
+        tlSub = table.getDoubleTopic("tl").subscribe(0);
+        clSub = table.getDoubleTopic("cl").subscribe(0);
+        tshortSub = table.getDoubleTopic("tshort").subscribe(0);
+        tlongSub = table.getDoubleTopic("tlong").subscribe(0);
+        thorSub = table.getDoubleTopic("thor").subscribe(0);
+        tvertSub = table.getDoubleTopic("tvert").subscribe(0);
+        tidSub = table.getDoubleTopic("tid").subscribe(0);
+        getpipeSub = table.getDoubleTopic("getpipe").subscribe(0);
+        tclassSub = table.getStringTopic("tclass").subscribe("");
+
+        tcSub = table.getDoubleArrayTopic("tc").subscribe(EMPTY);
+        camPoseRobotSpaceSub = table.getDoubleArrayTopic("camerapose_robotspace").subscribe(EMPTY);
+        camPoseTargetSpaceSub = table.getDoubleArrayTopic("camerapose_targetspace").subscribe(EMPTY);
+        targetPoseCameraSpaceSub = table.getDoubleArrayTopic("targetpose_cameraspace").subscribe(EMPTY);
+        targetPoseRobotSpaceSub = table.getDoubleArrayTopic("targetpose_robotspace").subscribe(EMPTY);
+        botPoseBlueSub = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(EMPTY);
+    }
+
+    /**
+     * Copies every value out of NT. Call once per loop, before reading any of the values.
+     */
+    public void update() {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            heartbeat = heartbeatSub.get();
+
+            hasTarget = tvSub.get() == 1.0;
+            tx = txSub.get();
+            ty = tySub.get();
+            ta = taSub.get();
+            pipelineLatency = tlSub.get();
+            captureLatency = clSub.get();
+            tshort = tshortSub.get();
+            tlong = tlongSub.get();
+            thor = thorSub.get();
+            tvert = tvertSub.get();
+            tid = (int) tidSub.get();
+            pipeline = (int) getpipeSub.get();
+            tclass = tclassSub.get();
+
+            long change = tcSub.getLastChange();
+            if (change != tcChange) {
+                tc = tcSub.get();
+                tcChange = change;
+            }
+            change = camPoseRobotSpaceSub.getLastChange();
+            if (change != camPoseRobotSpaceChange) {
+                camPoseRobotSpace = camPoseRobotSpaceSub.get();
+                camPoseRobotSpaceChange = change;
+            }
+            change = camPoseTargetSpaceSub.getLastChange();
+            if (change != camPoseTargetSpaceChange) {
+                camPoseTargetSpace = camPoseTargetSpaceSub.get();
+                camPoseTargetSpaceChange = change;
+            }
+            change = targetPoseCameraSpaceSub.getLastChange();
+            if (change != targetPoseCameraSpaceChange) {
+                targetPoseCameraSpace = targetPoseCameraSpaceSub.get();
+                targetPoseCameraSpaceChange = change;
+            }
+            change = targetPoseRobotSpaceSub.getLastChange();
+            if (change != targetPoseRobotSpaceChange) {
+                targetPoseRobotSpace = targetPoseRobotSpaceSub.get();
+                targetPoseRobotSpaceChange = change;
+            }
+            change = botPoseBlueSub.getLastChange();
+            if (change != botPoseBlueChange) {
+                TimestampedDoubleArray rawPose = botPoseBlueSub.getAtomic();
+                botPoseBlue = rawPose.value;
+                botPoseBlueTimestamp = rawPose.timestamp;
+                botPoseBlueChange = change;
+            }
+
+            // a new frame landed while copying, read again so every value is from the same frame
+            if (heartbeatSub.get() == heartbeat) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the heartbeat of the frame in this snapshot, it increases once per frame
+     */
+    public double getHeartbeat() {
+        return heartbeat;
+    }
+
+    public boolean hasTarget() {
+        return hasTarget;
+    }
+
+    public double getTargetX() {
+        return tx;
+    }
+
+    public double getTargetY() {
+        return ty;
+    }
+
+    public double getTargetArea() {
+        return ta;
+    }
+
+    public double getPipelineLatency() {
+        return pipelineLatency;
+    }
+
+    public double getCaptureLatency() {
+        return captureLatency;
+    }
+
+    public double getTotalLatency() {
+        return pipelineLatency + captureLatency;
+    }
+
+    public double getTShort() {
+        return tshort;
+    }
+
+    public double getTLong() {
+        return tlong;
+    }
+
+    public double getTHor() {
+        return thor;
+    }
+
+    public double getTVert() {
+        return tvert;
+    }
+
+    public int getApriltagID() {
+        return tid;
+    }
+
+    /**
+     * @return the pipeline the limelight reports it is running (getpipe)
+     */
+    public int getPipeline() {
+        return pipeline;
+    }
+
+    public String getNeuralClassID() {
+        return tclass;
+    }
+
+    /*
+     * The array accessors return the snapshot's own arrays, callers must not modify them
+     */
+
+    public double[] getAverageHSV() {
+        return tc;
+    }
+
+    public double[] getCamPoseRobotSpace() {
+        return camPoseRobotSpace;
+    }
+
+    public double[] getCamPoseTargetSpace() {
+        return camPoseTargetSpace;
+    }
+
+    public double[] getTargetPoseCameraSpace() {
+        return targetPoseCameraSpace;
+    }
+
+    public double[] getTargetPoseRobotSpace() {
+        return targetPoseRobotSpace;
+    }
+
+    public double[] getBotPoseBlue() {
+        return botPoseBlue;
+    }
+
+    /**
+     * @return the NT timestamp of the blue alliance bot pose (microseconds)
+     */
+    public long getBotPoseBlueTimestamp() {
+        return botPoseBlueTimestamp;
+    }
+}
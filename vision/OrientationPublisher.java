@@ -0,0 +1,115 @@
+package frc.thunder.vision;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Feeds the robot's heading to every limelight for MegaTag2, faster than the main loop. A
+ * background notifier reads the gyro, writes robot_orientation_set to each camera through a cached
+ * publisher, and flushes NT right away, so each pose solve uses the freshest heading instead of
+ * one up to a loop (plus the NT update period) old.
+ *
+ * The suppliers are called from the notifier thread, so they must be safe to call off the main
+ * thread (eg reading a cached gyro signal).
+ *
+ * USAGE:
+ *
+ * <pre>
+ * orientation = new OrientationPublisher(() -&gt; gyro.getYaw(), () -&gt; gyro.getRate(), frontLimelight, backLimelight);
+ * orientation.start();
+ * </pre>
+ */
+public class OrientationPublisher implements AutoCloseable {
+    /** How often (seconds) the heading is sent, faster than any limelight frame rate */
+    public static final double DEFAULT_PERIOD = 0.005;
+
+    private final DoubleSupplier yaw;
+    private final DoubleSupplier yawRate;
+    private final DoubleArrayPublisher[] publishers;
+    private final NetworkTableInstance[] instances;
+    private final double period;
+    private final Notifier notifier;
+
+    private final double[] orientation = new double[6];
+
+    /**
+     * @param yaw the robot's yaw (degrees, counterclockwise positive, blue alliance origin)
+     * @param yawRate the robot's yaw rate (degrees per second)
+     * @param cameras the limelights to feed
+     */
+    public OrientationPublisher(DoubleSupplier yaw, DoubleSupplier yawRate, Limelight... cameras) {
+        this(DEFAULT_PERIOD, yaw, yawRate, cameras);
+    }
+
+    /**
+     * @param period how often (seconds) the heading is sent
+     * @param yaw the robot's yaw (degrees, counterclockwise positive, blue alliance origin)
+     * @param yawRate the robot's yaw rate (degrees per second)
+     * @param cameras the limelights to feed
+     */
+    public OrientationPublisher(double period, DoubleSupplier yaw, DoubleSupplier yawRate, Limelight... cameras) {
+        this.yaw = yaw;
+        this.yawRate = yawRate;
+        this.period = period;
+
+        publishers = new DoubleArrayPublisher[cameras.length];
+        NetworkTableInstance[] found = new NetworkTableInstance[cameras.length];
+        int instanceCount = 0;
+        for (int i = 0; i < cameras.length; i++) {
+            publishers[i] = cameras[i].getOrientationPublisher();
+
+            // flush each instance once, however many cameras share it
+            NetworkTableInstance instance = cameras[i].getInstance();
+            boolean seen = false;
+            for (int j = 0; j < instanceCount && !seen; j++) {
+                seen = found[j].equals(instance);
+            }
+            if (!seen) {
+                found[instanceCount++] = instance;
+            }
+        }
+        instances = new NetworkTableInstance[instanceCount];
+        System.arraycopy(found, 0, instances, 0, instanceCount);
+
+        notifier = new Notifier(this::publish);
+        notifier.setName("OrientationPublisher");
+    }
+
+    /**
+     * Starts sending the heading in the background
+     */
+    public void start() {
+        notifier.startPeriodic(period);
+    }
+
+    /**
+     * Stops sending the heading
+     */
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * Sends the heading to every camera, runs on the notifier thread
+     */
+    private void publish() {
+        orientation[0] = yaw.getAsDouble();
+        orientation[1] = yawRate.getAsDouble();
+
+        // NT copies the array on set, so one buffer serves every camera
+        for (DoubleArrayPublisher publisher : publishers) {
+            publisher.set(orientation);
+        }
+        for (NetworkTableInstance instance : instances) {
+            instance.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+    }
+}
@@ -0,0 +1,170 @@
+package frc.thunder.vision;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import frc.thunder.util.ClockOffsetEstimator;
+import frc.thunder.util.Pose4d;
+import frc.thunder.util.PoseBatch;
+import frc.thunder.util.PoseConverter;
+import frc.thunder.util.PoseMeasurement;
+
+/**
+ * Reads every pose frame a limelight publishes, instead of only the newest one. NT keeps a queue of
+ * the values received since the last read, and {@link #drain()} copies all of them into
+ * preallocated buffers, so each frame reaches the pose estimator with its own timestamp even when
+ * the camera runs faster than the robot loop or the loop stalls.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * int frames = queue.drain();
+ * for (int i = 0; i &lt; frames; i++) {
+ *     estimator.addVisionMeasurement(..., queue.getTimestampSeconds(i));
+ * }
+ * </pre>
+ *
+ * @see Limelight#getBluePoseQueue()
+ */
+public class PoseFrameQueue {
+    /** Number of frames kept between reads, ~0.2s at the limelight's max frame rate */
+    public static final int DEFAULT_DEPTH = 20;
+
+    /** Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw), latency, tag count, span, distance, area */
+    public static final int POSE_LENGTH = 11;
+
+    private final DoubleArraySubscriber subscriber;
+    private final double[][] frames;
+    private final long[] timestamps;
+    private final double[] timestampSeconds;
+    private final double[] ambiguities;
+    private int count = 0;
+
+    /**
+     * @param table the limelight's network table
+     * @param key the pose array to queue (eg botpose_wpiblue)
+     * @param depth the number of frames to keep between reads
+     */
+    PoseFrameQueue(NetworkTable table, String key, int depth) {
+        subscriber = table.getDoubleArrayTopic(key).subscribe(new double[0],
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true),
+                PubSubOption.pollStorage(depth));
+        frames = new double[depth][POSE_LENGTH];
+        timestamps = new long[depth];
+        timestampSeconds = new double[depth];
+        ambiguities = new double[depth];
+    }
+
+    /**
+     * Copies every frame received since the last call into the buffers, oldest first. Frames that
+     * are too short to hold a pose are skipped. Only the pose is kept of each frame, the per tag
+     * values after it are reduced to the highest tag ambiguity.
+     *
+     * @return the number of frames read
+     */
+    public int drain() {
+        TimestampedDoubleArray[] queue = subscriber.readQueue();
+        count = 0;
+
+        // if more frames arrived than we have room for, keep the newest ones
+        for (int i = Math.max(0, queue.length - frames.length); i < queue.length; i++) {
+            double[] value = queue[i].value;
+            if (value.length < 10) {
+                continue;
+            }
+
+            int length = Math.min(value.length, POSE_LENGTH);
+            System.arraycopy(value, 0, frames[count], 0, length);
+            for (int j = length; j < POSE_LENGTH; j++) {
+                frames[count][j] = 0;
+            }
+            ambiguities[count] = PoseConverter.getMaxAmbiguity(value);
+            timestamps[count] = queue[i].timestamp;
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of frames read by the last {@link #drain()}
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param i the frame index, 0 is the oldest
+     * @return the raw pose array of the frame, owned by the queue and overwritten on the next drain
+     */
+    public double[] getFrame(int i) {
+        return frames[i];
+    }
+
+    /**
+     * @param i the frame index, 0 is the oldest
+     * @return the NT timestamp the frame was published at (microseconds)
+     */
+    public long getTimestamp(int i) {
+        return timestamps[i];
+    }
+
+    /**
+     * @param i the frame index, 0 is the oldest
+     * @return the time the frame was published at, on the FPGA clock (seconds)
+     */
+    public double getTimestampSeconds(int i) {
+        return ClockOffsetEstimator.toFPGATime(timestamps[i]);
+    }
+
+    /**
+     * @param i the frame index, 0 is the oldest
+     * @return the highest pose ambiguity of the tags in the frame, 0 if unknown
+     */
+    public double getAmbiguity(int i) {
+        return ambiguities[i];
+    }
+
+    /**
+     * @param i the frame index, 0 is the oldest
+     * @return a new Pose4d for the frame
+     */
+    public Pose4d getPose(int i) {
+        return new Pose4d(frames[i], getTimestampSeconds(i));
+    }
+
+    /**
+     * Decode a frame into an existing measurement, without allocating
+     *
+     * @param i the frame index, 0 is the oldest
+     * @param out the measurement to decode into
+     * @return whether the frame held a pose
+     */
+    public boolean getPose(int i, PoseMeasurement out) {
+        boolean valid = PoseConverter.toPoseMeasurement(frames[i], getTimestampSeconds(i), out);
+        out.setAmbiguity(valid ? ambiguities[i] : 0);
+        return valid;
+    }
+
+    /**
+     * Convert every frame of the last {@link #drain()} at once into flat columns, without allocating
+     *
+     * @param out the batch to convert into
+     * @return the number of poses in the batch
+     */
+    public int getPoses(PoseBatch out) {
+        for (int i = 0; i < count; i++) {
+            timestampSeconds[i] = getTimestampSeconds(i);
+        }
+        return PoseConverter.toPoseBatch(frames, timestampSeconds, ambiguities, count, out);
+    }
+
+    /**
+     * Stops queueing frames
+     */
+    public void close() {
+        subscriber.close();
+    }
+}
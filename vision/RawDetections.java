@@ -0,0 +1,132 @@
+package frc.thunder.vision;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.PubSubOption;
+
+/**
+ * Every neural detector result the limelight sees, decoded from the rawdetections array into flat
+ * column buffers (one primitive array per field, indexed by target), same as {@link RawFiducials}.
+ *
+ * @see Limelight#getRawDetections()
+ */
+public class RawDetections {
+    /** Most detections decoded per frame */
+    public static final int MAX_TARGETS = 16;
+
+    /** classId, txnc, tync, ta, then the x and y of 4 corners */
+    public static final int VALUES_PER_TARGET = 12;
+
+    /** Number of corner values per target, x0, y0, x1, y1... */
+    public static final int CORNER_VALUES = 8;
+
+    /** Class ID of the detection */
+    public final int[] classId = new int[MAX_TARGETS];
+    /** Horizontal offset from the principal pixel (degrees) */
+    public final double[] txnc = new double[MAX_TARGETS];
+    /** Vertical offset from the principal pixel (degrees) */
+    public final double[] tync = new double[MAX_TARGETS];
+    /** Target area (0% of image to 100% of image) */
+    public final double[] area = new double[MAX_TARGETS];
+    /** Corners of each detection (pixels), target i starts at i * {@link #CORNER_VALUES} */
+    public final double[] corners = new double[MAX_TARGETS * CORNER_VALUES];
+
+    private final DoubleArraySubscriber subscriber;
+    private long lastChange = -1;
+    private int count = 0;
+
+    /**
+     * @param table the limelight's network table
+     */
+    RawDetections(NetworkTable table) {
+        // keep duplicates, so a frame identical to the last one still counts as a new frame (see
+        // getLastChange)
+        subscriber = table.getDoubleArrayTopic("rawdetections").subscribe(new double[0],
+                PubSubOption.keepDuplicates(true));
+    }
+
+    /**
+     * Decode the newest rawdetections array into the columns. The columns are only rewritten when
+     * the limelight publishes a new array.
+     *
+     * @return the number of detections decoded
+     */
+    public int update() {
+        long change = subscriber.getLastChange();
+        if (change != lastChange) {
+            lastChange = change;
+            decode(subscriber.get());
+        }
+        return count;
+    }
+
+    /**
+     * Decode a raw array into the columns, detections past {@link #MAX_TARGETS} are dropped
+     *
+     * @param raw the rawdetections array
+     */
+    void decode(double[] raw) {
+        count = Math.min(raw.length / VALUES_PER_TARGET, MAX_TARGETS);
+        for (int i = 0, base = 0; i < count; i++, base += VALUES_PER_TARGET) {
+            classId[i] = (int) raw[base];
+            txnc[i] = raw[base + 1];
+            tync[i] = raw[base + 2];
+            area[i] = raw[base + 3];
+            System.arraycopy(raw, base + 4, corners, i * CORNER_VALUES, CORNER_VALUES);
+        }
+    }
+
+    /**
+     * @return the NT time (microseconds) of the array decoded by the last {@link #update()}
+     */
+    public long getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * @return the number of detections decoded by the last {@link #update()}
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param targetClass the class to look for
+     * @return the index of the largest detection of the class, or -1 if there is none
+     */
+    public int largest(int targetClass) {
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if (classId[i] == targetClass && (best < 0 || area[i] > area[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sort the detection indices by a column, smallest first, without moving the columns themselves
+     *
+     * @param column the column to sort by (eg txnc or area)
+     * @param order filled with the sorted indices, at least {@link #size()} long
+     * @return the number of indices written
+     */
+    public int sortBy(double[] column, int[] order) {
+        for (int i = 0; i < count; i++) {
+            int j = i - 1;
+            while (j >= 0 && column[order[j]] > column[i]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = i;
+        }
+        return count;
+    }
+
+    /**
+     * Stops reading the rawdetections array
+     */
+    public void close() {
+        subscriber.close();
+    }
+}
@@ -0,0 +1,153 @@
+package frc.thunder.vision;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+
+/**
+ * Every AprilTag the limelight sees, decoded from the rawfiducials array into flat column buffers
+ * (one primitive array per field, indexed by target). The buffers are allocated once, so tags can be
+ * filtered and sorted every loop with tight loops over the columns, without building an object per
+ * tag per frame.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * RawFiducials tags = limelight.getRawFiducials();
+ * int count = tags.update();
+ * for (int i = 0; i &lt; count; i++) {
+ *     if (tags.ambiguity[i] &lt; 0.2 &amp;&amp; tags.distToRobot[i] &lt; best) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @see Limelight#getRawFiducials()
+ */
+public class RawFiducials {
+    /** Most tags decoded per frame, more than the limelight can see at once */
+    public static final int MAX_TARGETS = 32;
+
+    /** id, txnc, tync, ta, distToCamera, distToRobot, ambiguity */
+    public static final int VALUES_PER_TARGET = 7;
+
+    /** Tag ID */
+    public final int[] id = new int[MAX_TARGETS];
+    /** Horizontal offset from the principal pixel (degrees) */
+    public final double[] txnc = new double[MAX_TARGETS];
+    /** Vertical offset from the principal pixel (degrees) */
+    public final double[] tync = new double[MAX_TARGETS];
+    /** Target area (0% of image to 100% of image) */
+    public final double[] area = new double[MAX_TARGETS];
+    /** Distance from the camera to the tag (meters) */
+    public final double[] distToCamera = new double[MAX_TARGETS];
+    /** Distance from the robot to the tag (meters) */
+    public final double[] distToRobot = new double[MAX_TARGETS];
+    /** Pose ambiguity of the tag, 0 is unambiguous */
+    public final double[] ambiguity = new double[MAX_TARGETS];
+
+    private final DoubleArraySubscriber subscriber;
+    private long lastChange = -1;
+    private int count = 0;
+
+    /**
+     * @param table the limelight's network table
+     */
+    RawFiducials(NetworkTable table) {
+        subscriber = table.getDoubleArrayTopic("rawfiducials").subscribe(new double[0]);
+    }
+
+    /**
+     * Decode the newest rawfiducials array into the columns. The columns are only rewritten when
+     * the limelight publishes a new array.
+     *
+     * @return the number of tags decoded
+     */
+    public int update() {
+        long change = subscriber.getLastChange();
+        if (change != lastChange) {
+            lastChange = change;
+            decode(subscriber.get());
+        }
+        return count;
+    }
+
+    /**
+     * Decode a raw array into the columns, tags past {@link #MAX_TARGETS} are dropped
+     *
+     * @param raw the rawfiducials array
+     */
+    void decode(double[] raw) {
+        count = Math.min(raw.length / VALUES_PER_TARGET, MAX_TARGETS);
+        for (int i = 0, base = 0; i < count; i++, base += VALUES_PER_TARGET) {
+            id[i] = (int) raw[base];
+            txnc[i] = raw[base + 1];
+            tync[i] = raw[base + 2];
+            area[i] = raw[base + 3];
+            distToCamera[i] = raw[base + 4];
+            distToRobot[i] = raw[base + 5];
+            ambiguity[i] = raw[base + 6];
+        }
+    }
+
+    /**
+     * @return the number of tags decoded by the last {@link #update()}
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param tagID the tag to look for
+     * @return the index of the tag, or -1 if it is not in view
+     */
+    public int indexOf(int tagID) {
+        for (int i = 0; i < count; i++) {
+            if (id[i] == tagID) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param maxAmbiguity the highest ambiguity allowed
+     * @return the index of the closest tag (to the robot) under the ambiguity limit, or -1 if there
+     *         is none
+     */
+    public int closest(double maxAmbiguity) {
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if (ambiguity[i] <= maxAmbiguity && (best < 0 || distToRobot[i] < distToRobot[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sort the tag indices by a column, smallest first, without moving the columns themselves
+     *
+     * @param column the column to sort by (eg distToRobot or ambiguity)
+     * @param order filled with the sorted indices, at least {@link #size()} long
+     * @return the number of indices written
+     */
+    public int sortBy(double[] column, int[] order) {
+        // a handful of tags, so an insertion sort beats anything fancier
+        for (int i = 0; i < count; i++) {
+            int j = i - 1;
+            while (j >= 0 && column[order[j]] > column[i]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = i;
+        }
+        return count;
+    }
+
+    /**
+     * Stops reading the rawfiducials array
+     */
+    public void close() {
+        subscriber.close();
+    }
+}
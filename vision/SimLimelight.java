@@ -0,0 +1,379 @@
+package frc.thunder.vision;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleFunction;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Stand-in for a limelight, for tests, simulation and benchmarks with no camera attached. It
+ * follows a scripted robot path, works out which tags of a field layout the camera can see, and
+ * publishes the same topics a limelight does (hb, tv, tx, ty, ta, tid, tl, cl, getpipe,
+ * botpose_wpiblue, rawfiducials) at a fixed frame rate. It also serves the REST endpoints
+ * {@link Limelight} calls (hwreport, snapshotmanifest, capturesnapshot, deletesnapshots).
+ *
+ * Frames are sampled at their capture time (now minus the simulated latency) and published with
+ * the NT time they were sent, so end to end latency through the vision path can be measured.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * SimLimelight sim = new SimLimelight("limelight", layout, robotToCamera);
+ * sim.setTrajectory(trajectory);
+ * sim.start();
+ *
+ * Limelight limelight = new Limelight("limelight", "localhost");
+ * </pre>
+ */
+public class SimLimelight implements AutoCloseable {
+    /** Port the limelight serves its REST API on */
+    public static final int REST_PORT = 5807;
+
+    /** Limelight 3 field of view (degrees) */
+    private static final double HORIZONTAL_FOV = 62.5;
+    private static final double VERTICAL_FOV = 48.9;
+
+    /** Side length of a FRC AprilTag (meters) */
+    private static final double TAG_SIZE = 0.1651;
+
+    private final NetworkTableInstance instance;
+    private final AprilTagFieldLayout layout;
+    private final Transform3d robotToCamera;
+    private final Notifier notifier;
+    private final Random random = new Random(862);
+
+    private final DoublePublisher hbPub;
+    private final DoublePublisher tvPub;
+    private final DoublePublisher txPub;
+    private final DoublePublisher tyPub;
+    private final DoublePublisher taPub;
+    private final DoublePublisher tidPub;
+    private final DoublePublisher tlPub;
+    private final DoublePublisher clPub;
+    private final DoublePublisher getpipePub;
+    private final DoubleArrayPublisher botposePub;
+    private final DoubleArrayPublisher rawFiducialsPub;
+    private final DoubleSubscriber pipelineSub;
+
+    private HttpServer server = null;
+    private final List<String> snapshots = new ArrayList<String>();
+
+    private DoubleFunction<Pose2d> path = time -> new Pose2d();
+    private double frameRate = 50;
+    private double pipelineLatency = 20;
+    private double captureLatency = 10;
+    private double maxDistance = 6;
+    private double noise = 0;
+
+    private long startTime = 0;
+    private long heartbeat = 0;
+
+    /**
+     * Publishes to the default NT instance
+     *
+     * @param name the name of the limelight used in network tables
+     * @param layout the tags on the field
+     * @param robotToCamera the camera's position on the robot
+     */
+    public SimLimelight(String name, AprilTagFieldLayout layout, Transform3d robotToCamera) {
+        this(name, layout, robotToCamera, NetworkTableInstance.getDefault());
+    }
+
+    /**
+     * @param name the name of the limelight used in network tables
+     * @param layout the tags on the field
+     * @param robotToCamera the camera's position on the robot
+     * @param instance the NT instance to publish to (eg a local one for tests)
+     */
+    public SimLimelight(String name, AprilTagFieldLayout layout, Transform3d robotToCamera, NetworkTableInstance instance) {
+        this.instance = instance;
+        this.layout = layout;
+        this.robotToCamera = robotToCamera;
+
+        NetworkTable table = instance.getTable(name);
+        hbPub = table.getDoubleTopic("hb").publish();
+        tvPub = table.getDoubleTopic("tv").publish();
+        txPub = table.getDoubleTopic("tx").publish();
+        tyPub = table.getDoubleTopic("ty").publish();
+        taPub = table.getDoubleTopic("ta").publish();
+        tidPub = table.getDoubleTopic("tid").publish();
+        tlPub = table.getDoubleTopic("tl").publish();
+        clPub = table.getDoubleTopic("cl").publish();
+        getpipePub = table.getDoubleTopic("getpipe").publish();
+        botposePub = table.getDoubleArrayTopic("botpose_wpiblue").publish();
+        rawFiducialsPub = table.getDoubleArrayTopic("rawfiducials").publish();
+        pipelineSub = table.getDoubleTopic("pipeline").subscribe(0);
+
+        notifier = new Notifier(this::publishFrame);
+        notifier.setName("SimLimelight " + name);
+    }
+
+    /**
+     * @param path the robot's blue alliance pose at a time (seconds since {@link #start()})
+     */
+    public void setPath(DoubleFunction<Pose2d> path) {
+        this.path = path;
+    }
+
+    /**
+     * Follow a trajectory, looping back to the start when it ends
+     *
+     * @param trajectory the robot's path
+     */
+    public void setTrajectory(Trajectory trajectory) {
+        double length = trajectory.getTotalTimeSeconds();
+        path = time -> trajectory.sample(length > 0 ? time % length : 0).poseMeters;
+    }
+
+    /**
+     * @param fps frames published per second, takes effect on the next {@link #start()}
+     */
+    public void setFrameRate(double fps) {
+        frameRate = fps;
+    }
+
+    /**
+     * @param pipeline the simulated pipeline latency (ms)
+     * @param capture the simulated capture latency (ms)
+     */
+    public void setLatency(double pipeline, double capture) {
+        pipelineLatency = pipeline;
+        captureLatency = capture;
+    }
+
+    /**
+     * @param distance the furthest (meters) a tag can be seen from
+     */
+    public void setMaxDistance(double distance) {
+        maxDistance = distance;
+    }
+
+    /**
+     * @param noise standard deviation of the pose error per meter of average tag distance (meters)
+     */
+    public void setNoise(double noise) {
+        this.noise = noise;
+    }
+
+    /**
+     * Starts publishing frames and serving the REST endpoints on {@link #REST_PORT}
+     */
+    public void start() {
+        start(REST_PORT);
+    }
+
+    /**
+     * Starts publishing frames and serving the REST endpoints
+     *
+     * @param port the port to serve the REST endpoints on
+     */
+    public void start(int port) {
+        startTime = NetworkTablesJNI.now();
+        notifier.startPeriodic(1 / frameRate);
+
+        if (server == null) {
+            try {
+                server = HttpServer.create(new InetSocketAddress(port), 0);
+                server.createContext("/hwreport", exchange -> respond(exchange,
+                        "{\"fps\":" + frameRate + ",\"temp\":45.0,\"cpu\":20.0,\"ram\":30.0}"));
+                server.createContext("/snapshotmanifest", exchange -> respond(exchange, getManifest()));
+                server.createContext("/capturesnapshot", this::captureSnapshot);
+                server.createContext("/deletesnapshots", exchange -> {
+                    synchronized (snapshots) {
+                        snapshots.clear();
+                    }
+                    respond(exchange, "");
+                });
+                server.start();
+            } catch (IOException e) {
+                System.err.println("SimLimelight could not serve port " + port + ": " + e.getMessage());
+                server = null;
+            }
+        }
+    }
+
+    /**
+     * Stops publishing frames, the REST endpoints keep being served until {@link #close()}
+     */
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * @return the number of frames published
+     */
+    public long getFrameCount() {
+        return heartbeat;
+    }
+
+    /**
+     * Work out what the camera sees and publish it as one frame, runs on the notifier thread
+     */
+    private void publishFrame() {
+        long now = NetworkTablesJNI.now();
+        double latency = pipelineLatency + captureLatency;
+        double captureTime = (now - startTime) / 1.0e6 - latency / 1000d;
+
+        Pose2d robot = path.apply(captureTime);
+        Pose3d camera = new Pose3d(robot).transformBy(robotToCamera);
+        double tanHalfH = Math.tan(Math.toRadians(HORIZONTAL_FOV / 2));
+        double tanHalfV = Math.tan(Math.toRadians(VERTICAL_FOV / 2));
+
+        List<AprilTag> tags = layout.getTags();
+        double[] raw = new double[tags.size() * RawFiducials.VALUES_PER_TARGET];
+        List<Translation3d> seen = new ArrayList<Translation3d>();
+        int count = 0;
+        int primary = -1;
+        double totalDistance = 0;
+        double totalArea = 0;
+
+        for (AprilTag tag : tags) {
+            Pose3d relative = tag.pose.relativeTo(camera);
+            double forward = relative.getX();
+            double distance = relative.getTranslation().getNorm();
+            if (forward <= 0 || distance > maxDistance) {
+                continue;
+            }
+
+            // WPILib is +Y left, the limelight is +tx right
+            double tx = -Math.toDegrees(Math.atan2(relative.getY(), forward));
+            double ty = Math.toDegrees(Math.atan2(relative.getZ(), forward));
+            if (Math.abs(tx) > HORIZONTAL_FOV / 2 || Math.abs(ty) > VERTICAL_FOV / 2) {
+                continue;
+            }
+            // a tag's +X points out of its face, so the camera has to be on that side, same as
+            // FiducialFilter
+            if (camera.relativeTo(tag.pose).getX() <= 0) {
+                continue;
+            }
+
+            double area = 100 * TAG_SIZE * TAG_SIZE / (distance * distance * 4 * tanHalfH * tanHalfV);
+            double distToRobot = tag.pose.getTranslation().toTranslation2d().getDistance(robot.getTranslation());
+
+            int base = count * RawFiducials.VALUES_PER_TARGET;
+            raw[base] = tag.ID;
+            raw[base + 1] = tx;
+            raw[base + 2] = ty;
+            raw[base + 3] = area;
+            raw[base + 4] = distance;
+            raw[base + 5] = distToRobot;
+            raw[base + 6] = Math.min(1, 0.02 * distance);
+
+            if (primary < 0 || area > raw[primary * RawFiducials.VALUES_PER_TARGET + 3]) {
+                primary = count;
+            }
+            seen.add(tag.pose.getTranslation());
+            totalDistance += distance;
+            totalArea += area;
+            count++;
+        }
+
+        double[] botpose = new double[PoseFrameQueue.POSE_LENGTH];
+        if (count > 0) {
+            double span = 0;
+            for (int i = 0; i < seen.size(); i++) {
+                for (int j = i + 1; j < seen.size(); j++) {
+                    span = Math.max(span, seen.get(i).getDistance(seen.get(j)));
+                }
+            }
+
+            double averageDistance = totalDistance / count;
+            botpose[0] = robot.getX() + random.nextGaussian() * noise * averageDistance;
+            botpose[1] = robot.getY() + random.nextGaussian() * noise * averageDistance;
+            botpose[5] = robot.getRotation().getDegrees();
+            botpose[6] = latency;
+            botpose[7] = count;
+            botpose[8] = span;
+            botpose[9] = averageDistance;
+            botpose[10] = totalArea / count;
+        }
+
+        double[] rawFiducials = new double[count * RawFiducials.VALUES_PER_TARGET];
+        System.arraycopy(raw, 0, rawFiducials, 0, rawFiducials.length);
+        int primaryBase = primary * RawFiducials.VALUES_PER_TARGET;
+
+        heartbeat++;
+        tvPub.set(count > 0 ? 1 : 0, now);
+        txPub.set(count > 0 ? raw[primaryBase + 1] : 0, now);
+        tyPub.set(count > 0 ? raw[primaryBase + 2] : 0, now);
+        taPub.set(count > 0 ? raw[primaryBase + 3] : 0, now);
+        tidPub.set(count > 0 ? raw[primaryBase] : -1, now);
+        tlPub.set(pipelineLatency, now);
+        clPub.set(captureLatency, now);
+        getpipePub.set(pipelineSub.get(), now);
+        botposePub.set(botpose, now);
+        rawFiducialsPub.set(rawFiducials, now);
+        hbPub.set(heartbeat, now);
+        instance.flush();
+    }
+
+    private String getManifest() {
+        StringBuilder manifest = new StringBuilder("[");
+        synchronized (snapshots) {
+            for (int i = 0; i < snapshots.size(); i++) {
+                manifest.append(i > 0 ? ",\"" : "\"").append(snapshots.get(i)).append('"');
+            }
+        }
+        return manifest.append(']').toString();
+    }
+
+    private void captureSnapshot(HttpExchange exchange) throws IOException {
+        String name = exchange.getRequestHeaders().getFirst("snapname");
+        synchronized (snapshots) {
+            snapshots.add((name == null ? "snap" : name) + ".png");
+        }
+        respond(exchange, "");
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        hbPub.close();
+        tvPub.close();
+        txPub.close();
+        tyPub.close();
+        taPub.close();
+        tidPub.close();
+        tlPub.close();
+        clPub.close();
+        getpipePub.close();
+        botposePub.close();
+        rawFiducialsPub.close();
+        pipelineSub.close();
+    }
+}
@@ -0,0 +1,261 @@
+package frc.thunder.vision;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Lets commands ask for limelight snapshots whenever something interesting happens (a missed shot,
+ * a pose jump), without worrying about the cost. {@link #trigger(String)} only records the request;
+ * a background notifier sends them to the limelight one at a time, no faster than the limelight
+ * allows. Repeats of a reason that is already waiting, or was just sent, are merged into one
+ * snapshot.
+ *
+ * Storage on the limelight is kept to a budget, and snapshots already on the limelight when the
+ * recorder starts count toward it (they are logged at startup). The limelight can only delete every
+ * snapshot at once, so the recorder never deletes anything by itself: once the budget is used up it
+ * stops sending, warns on the driver station, and reports {@link #isFull()} until the team
+ * downloads what it needs and calls {@link #clear()} on purpose, eg from a dashboard button.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * snapshots = new SnapshotRecorder(limelight);
+ * snapshots.start();
+ *
+ * // anywhere
+ * snapshots.trigger("missed_shot");
+ * </pre>
+ */
+public class SnapshotRecorder implements AutoCloseable {
+    /** How often (seconds) a snapshot can be sent, the limelight takes at most 2 per second */
+    public static final double SEND_PERIOD = 0.5;
+
+    /** Snapshots kept on the limelight before recording stops */
+    public static final int DEFAULT_BUDGET = 100;
+
+    /** How long (seconds) after a reason is sent that repeats of it are merged into it */
+    private static final double DEFAULT_COALESCE_WINDOW = 2;
+
+    /** Triggers waiting to be sent, the oldest are dropped past this */
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final Limelight limelight;
+    private final Notifier notifier;
+
+    // waiting triggers, guarded by this
+    private final String[] queue = new String[QUEUE_CAPACITY];
+    private int queueHead = 0;
+    private int queueSize = 0;
+
+    // last time each recent reason was sent, only touched by the notifier thread
+    private final String[] recentReasons = new String[QUEUE_CAPACITY];
+    private final double[] recentTimes = new double[QUEUE_CAPACITY];
+    private int recentNext = 0;
+
+    private int budget = DEFAULT_BUDGET;
+    private double coalesceWindow = DEFAULT_COALESCE_WINDOW;
+
+    private volatile int stored = 0;
+    private volatile boolean busy = false;
+    private volatile boolean warned = false;
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private int sequence = 0;
+
+    /**
+     * @param limelight the limelight to take snapshots with
+     */
+    public SnapshotRecorder(Limelight limelight) {
+        this.limelight = limelight;
+
+        notifier = new Notifier(this::process);
+        notifier.setName("SnapshotRecorder " + limelight.getName());
+
+        // start the budget from what is already on the limelight
+        busy = true;
+        limelight.getSnapshotNamesAsync().whenComplete((names, error) -> {
+            if (error == null && names != null && names.isArray()) {
+                stored = names.size();
+                System.out.println("SnapshotRecorder " + limelight.getName() + ": " + stored
+                        + " snapshots already on the limelight count toward the budget of " + budget);
+            } else {
+                System.err.println("SnapshotRecorder " + limelight.getName()
+                        + ": unable to read the snapshot manifest, existing snapshots are not counted");
+            }
+            busy = false;
+        });
+    }
+
+    /**
+     * Starts sending snapshots in the background
+     */
+    public void start() {
+        notifier.startPeriodic(SEND_PERIOD);
+    }
+
+    /**
+     * Stops sending snapshots, triggers are still queued
+     */
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * Ask for a snapshot, safe to call from anywhere and never blocks on the limelight
+     *
+     * @param reason what happened, used to name the snapshot and to merge repeats
+     */
+    public synchronized void trigger(String reason) {
+        for (int i = 0; i < queueSize; i++) {
+            if (queue[(queueHead + i) % QUEUE_CAPACITY].equals(reason)) {
+                coalescedCount.incrementAndGet();
+                return;
+            }
+        }
+
+        if (queueSize == QUEUE_CAPACITY) {
+            queueHead = (queueHead + 1) % QUEUE_CAPACITY;
+            queueSize--;
+            droppedCount.incrementAndGet();
+        }
+        queue[(queueHead + queueSize) % QUEUE_CAPACITY] = reason;
+        queueSize++;
+    }
+
+    private synchronized String poll() {
+        if (queueSize == 0) {
+            return null;
+        }
+        String reason = queue[queueHead];
+        queue[queueHead] = null;
+        queueHead = (queueHead + 1) % QUEUE_CAPACITY;
+        queueSize--;
+        return reason;
+    }
+
+    /**
+     * Sends at most one snapshot, runs on the notifier thread
+     */
+    private void process() {
+        if (busy) {
+            return;
+        }
+
+        if (stored >= budget) {
+            // out of room, drop what is waiting rather than send it late once cleared
+            boolean dropped = false;
+            while (poll() != null) {
+                droppedCount.incrementAndGet();
+                dropped = true;
+            }
+            if (dropped && !warned) {
+                warned = true;
+                DriverStation.reportWarning("SnapshotRecorder " + limelight.getName() + ": " + stored
+                        + " snapshots stored, budget of " + budget + " reached, not recording until cleared", false);
+            }
+            return;
+        }
+
+        String reason;
+        double now = Timer.getFPGATimestamp();
+        while ((reason = poll()) != null && wasJustSent(reason, now)) {
+            coalescedCount.incrementAndGet();
+        }
+        if (reason == null) {
+            return;
+        }
+
+        recentReasons[recentNext] = reason;
+        recentTimes[recentNext] = now;
+        recentNext = (recentNext + 1) % QUEUE_CAPACITY;
+
+        busy = true;
+        stored++;
+        sentCount.incrementAndGet();
+        limelight.takeSnapshot(reason + "_" + sequence++).whenComplete((response, error) -> busy = false);
+    }
+
+    private boolean wasJustSent(String reason, double now) {
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            if (reason.equals(recentReasons[i]) && now - recentTimes[i] < coalesceWindow) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete every snapshot on the limelight and start recording again. The limelight can't delete
+     * single snapshots, so only call this once the snapshots have been downloaded.
+     *
+     * @return a future that completes when the limelight responds, with null on failure
+     */
+    public CompletableFuture<String> clear() {
+        return limelight.deleteAllSnapshots().whenComplete((response, error) -> {
+            if (error == null && response != null) {
+                stored = 0;
+                warned = false;
+            }
+        });
+    }
+
+    /**
+     * @param budget the number of snapshots kept on the limelight before recording stops
+     */
+    public void setBudget(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @param window how long (seconds) after a reason is sent that repeats of it are merged
+     */
+    public void setCoalesceWindow(double window) {
+        coalesceWindow = window;
+    }
+
+    /**
+     * @return the number of snapshots sent
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return the number of triggers merged into another snapshot
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return the number of triggers dropped because too many were waiting or the budget was used up
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return whether the budget is used up and triggers are being dropped, eg for a dashboard
+     *         indicator
+     */
+    public boolean isFull() {
+        return stored >= budget;
+    }
+
+    /**
+     * @return the number of snapshots thought to be on the limelight
+     */
+    public int getStoredCount() {
+        return stored;
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+    }
+}
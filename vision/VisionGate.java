@@ -0,0 +1,208 @@
+package frc.thunder.vision;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.thunder.shuffleboard.LightningShuffleboardPeriodic;
+import frc.thunder.util.Pose4d;
+import frc.thunder.util.PoseMeasurement;
+
+/**
+ * Cheap checks that throw out bad vision measurements before they cost a Kalman update in the pose
+ * estimator. Each check can be tuned or turned off, and every rejection is counted by reason and
+ * published to the "Vision Gate" tab, prefixed by the gate's name so several gates can share it.
+ *
+ * The checks, in order: the measurement holds a pose, it is inside the field, it saw enough tags,
+ * the tags were close enough, the tag ambiguity is low enough, and it agrees with odometry
+ * (skipped while disabled, so the robot can relocalize before a match).
+ *
+ * Odometry is only read by {@link #update()}, on the thread that calls it (the main loop), so a
+ * gate checking measurements on another thread never reads the drivetrain while it is being
+ * updated. {@link LimelightManager#drain(LimelightManager.MeasurementConsumer)} updates its gate.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * gate = new VisionGate("front");
+ * gate.setOdometry(drivetrain::getPose);
+ * vision.setGate(gate);
+ * </pre>
+ */
+public class VisionGate {
+    /**
+     * Why a measurement was rejected
+     */
+    public enum Reason {
+        ACCEPTED, NO_POSE, OUT_OF_FIELD, TOO_FEW_TAGS, TOO_FAR, AMBIGUOUS, INNOVATION
+    }
+
+    private static final Reason[] REASONS = Reason.values();
+
+    /** How often (seconds) the counts are published */
+    private static final double PUBLISH_PERIOD = 1.0;
+
+    private final long[] counts = new long[REASONS.length];
+    private final LightningShuffleboardPeriodic telemetry;
+
+    private int minTags = 1;
+    private double maxDistance = 5;
+    private double maxSingleTagDistance = 3;
+    private double maxAmbiguity = 0.3;
+    private double maxInnovation = 1.0;
+    private double maxHeadingInnovation = Math.toRadians(30);
+    private Supplier<Pose2d> odometry = null;
+    // odometry as of the last update, read by check on any thread
+    private volatile Pose2d reference = null;
+
+    public VisionGate() {
+        this("gate");
+    }
+
+    /**
+     * @param name the name the counts are published under, must be unique between gates
+     */
+    public VisionGate(String name) {
+        LightningShuffleboardPeriodic.Builder builder = LightningShuffleboardPeriodic.builder("Vision Gate")
+                .withPeriod(PUBLISH_PERIOD);
+        for (Reason reason : REASONS) {
+            builder.addDouble(name + " " + reason.name(), () -> counts[reason.ordinal()]);
+        }
+        telemetry = builder.build();
+    }
+
+    /**
+     * Check a measurement, with the ambiguity decoded into it
+     *
+     * @param measurement the measurement to check
+     * @return ACCEPTED, or the first check it failed
+     */
+    public Reason check(PoseMeasurement measurement) {
+        return check(measurement, measurement.getAmbiguity());
+    }
+
+    /**
+     * Check a measurement
+     *
+     * @param measurement the measurement to check
+     * @param ambiguity the highest ambiguity of the tags it was solved from (eg from
+     *        {@link RawFiducials#ambiguity}), 0 if unknown
+     * @return ACCEPTED, or the first check it failed
+     */
+    public Reason check(PoseMeasurement measurement, double ambiguity) {
+        Reason reason = evaluate(measurement, ambiguity);
+        counts[reason.ordinal()]++;
+        return reason;
+    }
+
+    private Reason evaluate(PoseMeasurement measurement, double ambiguity) {
+        if (!measurement.isValid() || (measurement.getX() == 0 && measurement.getY() == 0)) {
+            return Reason.NO_POSE;
+        }
+        // same bounds as Pose4d.FIELD
+        if (!Pose4d.isInField(measurement.getX(), measurement.getY())) {
+            return Reason.OUT_OF_FIELD;
+        }
+
+        int tagCount = measurement.getTagCount();
+        if (tagCount < minTags) {
+            return Reason.TOO_FEW_TAGS;
+        }
+        if (measurement.getDistance() > (tagCount > 1 ? maxDistance : maxSingleTagDistance)) {
+            return Reason.TOO_FAR;
+        }
+        // ambiguity only matters for single tag solves, multi tag solves are unambiguous
+        if (tagCount == 1 && ambiguity > maxAmbiguity) {
+            return Reason.AMBIGUOUS;
+        }
+
+        Pose2d reference = this.reference;
+        if (reference != null && !DriverStation.isDisabled()) {
+            double dx = measurement.getX() - reference.getX();
+            double dy = measurement.getY() - reference.getY();
+            double dTheta = Math.abs(Math.IEEEremainder(measurement.getYaw() - reference.getRotation().getRadians(), 2 * Math.PI));
+            if (dx * dx + dy * dy > maxInnovation * maxInnovation || dTheta > maxHeadingInnovation) {
+                return Reason.INNOVATION;
+            }
+        }
+
+        return Reason.ACCEPTED;
+    }
+
+    /**
+     * Read odometry for the innovation check, call this once per loop from the main thread (done by
+     * {@link LimelightManager#drain(LimelightManager.MeasurementConsumer)} for its gate)
+     */
+    public void update() {
+        Supplier<Pose2d> source = odometry;
+        reference = source != null ? source.get() : null;
+    }
+
+    /**
+     * @param odometry the current pose estimate to compare measurements against, null to skip the
+     *        innovation check. Only read by {@link #update()}, so it is never called off the thread
+     *        that calls update
+     */
+    public void setOdometry(Supplier<Pose2d> odometry) {
+        this.odometry = odometry;
+        if (odometry == null) {
+            reference = null;
+        }
+    }
+
+    /**
+     * @param minTags the fewest tags a measurement must be solved from
+     */
+    public void setMinTags(int minTags) {
+        this.minTags = minTags;
+    }
+
+    /**
+     * @param multiTag the furthest (meters) average tag distance for multi tag solves
+     * @param singleTag the furthest (meters) tag distance for single tag solves
+     */
+    public void setMaxDistance(double multiTag, double singleTag) {
+        maxDistance = multiTag;
+        maxSingleTagDistance = singleTag;
+    }
+
+    /**
+     * @param maxAmbiguity the highest ambiguity allowed for single tag solves
+     */
+    public void setMaxAmbiguity(double maxAmbiguity) {
+        this.maxAmbiguity = maxAmbiguity;
+    }
+
+    /**
+     * @param translation the furthest (meters) a measurement may be from odometry
+     * @param heading the furthest (radians) a measurement's heading may be from odometry
+     */
+    public void setMaxInnovation(double translation, double heading) {
+        maxInnovation = translation;
+        maxHeadingInnovation = heading;
+    }
+
+    /**
+     * @param reason the reason to look up
+     * @return the number of measurements checked with that result
+     */
+    public long getCount(Reason reason) {
+        return counts[reason.ordinal()];
+    }
+
+    /**
+     * Forget every count
+     */
+    public void resetCounts() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+    }
+
+    /**
+     * Stops publishing the counts
+     */
+    public void close() {
+        telemetry.cancel();
+    }
+}